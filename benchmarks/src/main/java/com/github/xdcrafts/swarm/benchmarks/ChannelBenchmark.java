@@ -0,0 +1,143 @@
+package com.github.xdcrafts.swarm.benchmarks;
+
+import com.github.xdcrafts.swarm.async.IChannel;
+import com.github.xdcrafts.swarm.async.impl.Channel;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.time.Duration;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Channel hand-off throughput and latency for single and multiple producers and consumers.
+ * Every put and take waits for its future, so producers feel backpressure of the buffer.
+ * Primary score counts attempts, in throughput mode completed operations are reported as puts and takes
+ * and operations that failed (timeout, full request queue) as putFailures and takeFailures.
+ */
+@State(Scope.Group)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class ChannelBenchmark {
+
+    private static final Supplier<Integer> VALUE = () -> 42;
+
+    /**
+     * Completed and failed operations of benchmark thread, reported next to throughput.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Outcomes {
+        public long puts;
+        public long takes;
+        public long putFailures;
+        public long takeFailures;
+        @Setup(Level.Iteration)
+        public void reset() {
+            this.puts = 0;
+            this.takes = 0;
+            this.putFailures = 0;
+            this.takeFailures = 0;
+        }
+    }
+
+    @Param({"1", "64", "1024"})
+    public int capacity;
+
+    private IChannel<Integer, Integer> channel;
+
+    @Setup(Level.Iteration)
+    public void setup() {
+        this.channel = Channel.<Integer>channel()
+            .withCapacity(this.capacity)
+            .withMaxPutRequests(1 << 20)
+            .withMaxTakeRequests(1 << 20)
+            .withPutTimeout(Duration.ofMillis(100))
+            .withTakeTimeout(Duration.ofMillis(100))
+            .get();
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() {
+        this.channel.close();
+    }
+
+    private void put(Outcomes outcomes, Blackhole blackhole) {
+        try {
+            blackhole.consume(this.channel.put(VALUE).join());
+            outcomes.puts++;
+        } catch (CompletionException e) {
+            outcomes.putFailures++;
+        }
+    }
+
+    private void take(Outcomes outcomes, Blackhole blackhole) {
+        try {
+            blackhole.consume(this.channel.take().join());
+            outcomes.takes++;
+        } catch (CompletionException e) {
+            outcomes.takeFailures++;
+        }
+    }
+
+    @Benchmark
+    @Group("spsc")
+    @GroupThreads(1)
+    public void spscPut(Outcomes outcomes, Blackhole blackhole) {
+        put(outcomes, blackhole);
+    }
+
+    @Benchmark
+    @Group("spsc")
+    @GroupThreads(1)
+    public void spscTake(Outcomes outcomes, Blackhole blackhole) {
+        take(outcomes, blackhole);
+    }
+
+    @Benchmark
+    @Group("mpsc")
+    @GroupThreads(4)
+    public void mpscPut(Outcomes outcomes, Blackhole blackhole) {
+        put(outcomes, blackhole);
+    }
+
+    @Benchmark
+    @Group("mpsc")
+    @GroupThreads(1)
+    public void mpscTake(Outcomes outcomes, Blackhole blackhole) {
+        take(outcomes, blackhole);
+    }
+
+    @Benchmark
+    @Group("mpmc")
+    @GroupThreads(4)
+    public void mpmcPut(Outcomes outcomes, Blackhole blackhole) {
+        put(outcomes, blackhole);
+    }
+
+    @Benchmark
+    @Group("mpmc")
+    @GroupThreads(4)
+    public void mpmcTake(Outcomes outcomes, Blackhole blackhole) {
+        take(outcomes, blackhole);
+    }
+}
@@ -0,0 +1,101 @@
+package com.github.xdcrafts.swarm.benchmarks;
+
+import com.github.xdcrafts.swarm.async.impl.Channel;
+import com.github.xdcrafts.swarm.async.impl.ChannelMetrics;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Bursts of take and put requests that are cancelled or time out while parked.
+ * After every iteration request queues must drain and pending request counters must return to zero,
+ * otherwise iteration fails.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+public class ChannelSoakBenchmark {
+
+    private static final AtomicInteger COUNTER = new AtomicInteger();
+
+    private Channel<Integer, Integer> channel;
+    private ChannelMetrics metrics;
+
+    @Setup(Level.Iteration)
+    public void setup() throws Exception {
+        this.channel = Channel.<Integer>channel()
+            .withCapacity(1)
+            .withMaxTakeRequests(1024)
+            .withMaxPutRequests(1024)
+            .withTakeTimeout(Duration.ofMillis(1))
+            .withPutTimeout(Duration.ofMillis(1))
+            .withMetrics("soak-" + COUNTER.incrementAndGet())
+            .get();
+        this.metrics = this.channel.getMetrics().get();
+        // Buffer stays full, so that puts get parked
+        this.channel.putBlocking(() -> 0, Duration.ofSeconds(1));
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() throws InterruptedException {
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(1);
+        while ((this.metrics.getTakeRequests() != 0 || this.metrics.getPutRequests() != 0)
+            && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+        final int takeRequests = this.metrics.getTakeRequests();
+        final int putRequests = this.metrics.getPutRequests();
+        this.channel.close();
+        if (takeRequests != 0 || putRequests != 0) {
+            throw new IllegalStateException(
+                "Request counters did not return to zero, takes: " + takeRequests + ", puts: " + putRequests
+            );
+        }
+    }
+
+    /**
+     * Put into full buffer, parked request is cancelled right away.
+     */
+    @Benchmark
+    public boolean cancelledPut() {
+        return this.channel.put(() -> 1).cancel(false);
+    }
+
+    /**
+     * Put into full buffer, parked request is left to time out.
+     */
+    @Benchmark
+    public CompletableFuture<?> timedOutPut() {
+        return this.channel.put(() -> 1);
+    }
+
+    /**
+     * Take and put of the same value, take is cancelled if it got parked.
+     */
+    @Benchmark
+    public boolean cancelledTake() {
+        final CompletableFuture<Integer> take = this.channel.take();
+        final boolean isCancelled = take.cancel(false);
+        this.channel.put(() -> 0);
+        return isCancelled;
+    }
+}
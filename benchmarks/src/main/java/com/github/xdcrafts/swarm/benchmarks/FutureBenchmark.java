@@ -0,0 +1,67 @@
+package com.github.xdcrafts.swarm.benchmarks;
+
+import com.github.xdcrafts.swarm.javaz.future.FutureOps;
+import com.github.xdcrafts.swarm.javaz.future.IFuture;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of chaining javaz futures of growing depth, plain CompletableFuture chain as baseline.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class FutureBenchmark {
+
+    @Param({"1", "10", "100"})
+    public int depth;
+
+    @Benchmark
+    public Object map() {
+        IFuture<Integer> future = FutureOps.completed(0);
+        for (int i = 0; i < this.depth; i++) {
+            future = future.map(x -> x + 1);
+        }
+        return future.get();
+    }
+
+    @Benchmark
+    public Object flatMap() {
+        IFuture<Integer> future = FutureOps.completed(0);
+        for (int i = 0; i < this.depth; i++) {
+            future = future.flatMap(x -> FutureOps.completed(x + 1));
+        }
+        return future.get();
+    }
+
+    @Benchmark
+    public Object yieldFor() {
+        return FutureOps.ID.yieldFor(
+            FutureOps.completed(1), FutureOps.completed(2), FutureOps.completed(3),
+            (Integer a, Integer b, Integer c) -> a + b + c
+        );
+    }
+
+    @Benchmark
+    public Object completableFuture() {
+        CompletableFuture<Integer> future = CompletableFuture.completedFuture(0);
+        for (int i = 0; i < this.depth; i++) {
+            future = future.thenApply(x -> x + 1);
+        }
+        return future.join();
+    }
+}
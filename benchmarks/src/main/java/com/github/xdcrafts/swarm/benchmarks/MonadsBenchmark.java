@@ -0,0 +1,62 @@
+package com.github.xdcrafts.swarm.benchmarks;
+
+import com.github.xdcrafts.swarm.javaz.option.OptionOps;
+import com.github.xdcrafts.swarm.javaz.trym.TryMOps;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Option and TryM map/flatMap chains, java.util.Optional as baseline.
+ * Run with -prof gc to get allocation rates.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class MonadsBenchmark {
+
+    public Integer value = 42;
+
+    @Benchmark
+    public Object option() {
+        return OptionOps.option(this.value)
+            .map(x -> x + 1)
+            .flatMap(x -> OptionOps.some(x * 2))
+            .filter(x -> x > 0);
+    }
+
+    @Benchmark
+    public Object optional() {
+        return Optional.ofNullable(this.value)
+            .map(x -> x + 1)
+            .flatMap(x -> Optional.of(x * 2))
+            .filter(x -> x > 0);
+    }
+
+    @Benchmark
+    public Object tryM() {
+        return TryMOps.tryM(() -> this.value)
+            .map(x -> x + 1)
+            .flatMap(x -> TryMOps.success(x * 2));
+    }
+
+    @Benchmark
+    public Object yieldForOption() {
+        return OptionOps.ID.yieldFor(
+            OptionOps.some(1), OptionOps.some(2), OptionOps.some(this.value),
+            (Integer a, Integer b, Integer c) -> a + b + c
+        );
+    }
+}
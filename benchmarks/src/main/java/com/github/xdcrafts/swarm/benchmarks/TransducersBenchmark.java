@@ -0,0 +1,65 @@
+package com.github.xdcrafts.swarm.benchmarks;
+
+import com.github.xdcrafts.swarm.transducers.ITransducer;
+import com.github.xdcrafts.swarm.transducers.Implementations;
+import com.github.xdcrafts.swarm.transducers.Transducers;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Transducer chain (map, filter, take) compared with the same java.util.stream pipeline.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class TransducersBenchmark {
+
+    @Param({"100", "10000", "1000000"})
+    public int size;
+
+    private List<Integer> input;
+
+    private ITransducer<Integer, Integer> chain;
+
+    @Setup
+    public void setup() {
+        this.input = new ArrayList<>(this.size);
+        for (int i = 0; i < this.size; i++) {
+            this.input.add(i);
+        }
+        this.chain = Implementations.<Integer, Integer>map(x -> x * 2)
+            .compose(Implementations.<Integer>filter(x -> x % 3 == 0))
+            .compose(Implementations.<Integer>take(this.size / 4));
+    }
+
+    @Benchmark
+    public List<Integer> transducers() {
+        return Transducers.into(this.chain, new ArrayList<>(), this.input).get();
+    }
+
+    @Benchmark
+    public List<Integer> stream() {
+        return this.input.stream()
+            .map(x -> x * 2)
+            .filter(x -> x % 3 == 0)
+            .limit(this.size / 4)
+            .collect(Collectors.toList());
+    }
+}
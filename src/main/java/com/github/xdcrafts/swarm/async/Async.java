@@ -2,15 +2,30 @@ package com.github.xdcrafts.swarm.async;
 
 import com.github.xdcrafts.swarm.javaz.trym.ITryM;
 import com.github.xdcrafts.swarm.javaz.trym.TryMOps;
+import com.github.xdcrafts.swarm.transducers.ITransducer;
+import com.github.xdcrafts.swarm.transducers.Reduction;
+import com.github.xdcrafts.swarm.transducers.Transducers;
+import com.github.xdcrafts.swarm.util.LangUtils;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Function;
 import java.util.function.Supplier;
 import java.util.function.BiConsumer;
 import java.util.function.Consumer;
 
+import static com.github.xdcrafts.swarm.util.FutureUtils.TIMEOUT_TIMER;
 import static java.util.Optional.empty;
 import static java.util.Optional.ofNullable;
 
@@ -86,41 +101,219 @@ public final class Async {
         void handle(ITryM<V> result, Completion completion);
     }
 
+    /**
+     * Marks supplier as expensive, so that channels with direct delivery evaluate it on their executor.
+     * @param supplier supplier of value
+     * @param <T> value type
+     * @return expensive supplier
+     */
+    public static <T> IExpensiveSupplier<T> expensive(Supplier<T> supplier) {
+        return supplier::get;
+    }
+
+    /**
+     * Delay before take that was rejected right away, e.g. because take queue is full, is issued again.
+     */
+    static final Duration REJECTED_TAKE_BACKOFF = Duration.ofMillis(10);
+
+    /**
+     * Is take error a rejection, not a timeout. Rejected take fails right away, so loop that retries it
+     * has to back off instead of spinning.
+     */
+    static boolean isRejected(Throwable error) {
+        final Throwable cause = error instanceof CompletionException && error.getCause() != null
+            ? error.getCause() : error;
+        return cause != null && !(cause instanceof TimeoutException);
+    }
+
+    /**
+     * Future that completes on executor once back off delay passes.
+     */
+    static CompletableFuture<Void> backOff(Executor executor) {
+        final CompletableFuture<Void> delay = new CompletableFuture<>();
+        TIMEOUT_TIMER.schedule(() -> executor.execute(() -> delay.complete(null)), REJECTED_TAKE_BACKOFF);
+        return delay;
+    }
+
+    /**
+     * Handler of single loop step, receives either value or error.
+     */
+    private interface StepHandler<V> {
+        void handle(V value, Throwable error, Completion completion);
+    }
+
+    /**
+     * Trampolined loop of async steps. Steps that are already complete are handled right here
+     * in a plain loop, so that ready values do not grow the stack, loop yields only when step
+     * is not complete yet and resumes from its callback on the thread that completes it.
+     */
+    private abstract static class Loop<V> {
+        final Completion completion;
+        final StepHandler<V> handler;
+        Loop(Completion completion, StepHandler<V> handler) {
+            this.completion = completion;
+            this.handler = handler;
+        }
+        abstract boolean isClosed();
+        abstract CompletableFuture<V> step();
+        /**
+         * Handles values that are ready without issuing async step.
+         * @return false if loop has to stop
+         */
+        boolean drain() {
+            return true;
+        }
+        final void run() {
+            for (;;) {
+                if (this.completion.isDone() || isClosed()) {
+                    this.completion.complete();
+                    return;
+                }
+                if (!drain()) {
+                    return;
+                }
+                if (this.completion.isDone() || isClosed()) {
+                    continue;
+                }
+                final CompletableFuture<V> future;
+                try {
+                    future = step();
+                } catch (Throwable t) {
+                    this.completion.exceptionally(t);
+                    return;
+                }
+                if (!future.isDone()) {
+                    future.whenComplete((res, err) -> {
+                            if (accept(res, err)) {
+                                run();
+                            }
+                        });
+                    return;
+                }
+                V value = null;
+                Throwable error = null;
+                try {
+                    value = future.join();
+                } catch (CompletionException e) {
+                    error = e.getCause();
+                } catch (Throwable t) {
+                    error = t;
+                }
+                if (!accept(value, error)) {
+                    return;
+                }
+            }
+        }
+        /**
+         * Passes step result to handler.
+         * @return false if loop has to stop
+         */
+        final boolean accept(V value, Throwable error) {
+            if (value == null && error == null) {
+                this.completion.exceptionally(
+                    new AsyncException("No response, no error in result of completable future.")
+                );
+                return false;
+            }
+            try {
+                this.handler.handle(value, error, this.completion);
+            } catch (Throwable t) {
+                this.completion.exceptionally(t);
+                return false;
+            }
+            return true;
+        }
+    }
+
     /**
      * Put loop.
      */
-    private static <T, I> void putLoop(
-        IChannel<T, I> channel,
-        Supplier<I> supplier,
-        AsyncCompletionHandler<Supplier<T>> asyncCompletionHandler,
-        Completion completion
-    ) {
-        if (!channel.isClosed()) {
-            channel.put(supplier).whenComplete((res, err) -> {
-                    if (res == null && err == null) {
-                        completion.exceptionally(
-                            new AsyncException("No response, no error in result of completable future.")
-                        );
-                    }
-                    try {
-                        final ITryM<Supplier<T>> result = res != null && res.isPresent()
-                            ? TryMOps.success(res.get()) : TryMOps.fail(err);
-                        asyncCompletionHandler.handle(result, completion);
-                    } catch (Throwable t) {
-                        completion.exceptionally(t);
-                        return;
+    private static final class PutLoop<T, I> extends Loop<Optional<Supplier<T>>> {
+        final IChannel<T, I> channel;
+        final Supplier<I> supplier;
+        PutLoop(
+            IChannel<T, I> channel,
+            Supplier<I> supplier,
+            StepHandler<Optional<Supplier<T>>> handler,
+            Completion completion
+        ) {
+            super(completion, handler);
+            this.channel = channel;
+            this.supplier = supplier;
+        }
+        @Override
+        boolean isClosed() {
+            return this.channel.isClosed();
+        }
+        @Override
+        CompletableFuture<Optional<Supplier<T>>> step() {
+            return this.channel.put(this.supplier);
+        }
+    }
+
+    /**
+     * Take loop, values that are already in channel are polled one at a time without take requests,
+     * so loop that gets done takes no value it does not hand to handler. Value whose supplier fails
+     * is handed to handler as failed take.
+     */
+    private static final class TakeLoop<T, I> extends Loop<T> {
+        final IChannel<T, I> channel;
+        TakeLoop(IChannel<T, I> channel, StepHandler<T> handler, Completion completion) {
+            super(completion, handler);
+            this.channel = channel;
+        }
+        @Override
+        boolean isClosed() {
+            return this.channel.isClosed();
+        }
+        @Override
+        CompletableFuture<T> step() {
+            return this.channel.take();
+        }
+        @Override
+        boolean drain() {
+            while (!this.completion.isDone()) {
+                final T value;
+                try {
+                    value = this.channel.poll();
+                } catch (Throwable t) {
+                    if (!accept(null, t)) {
+                        return false;
                     }
-                    if (!completion.isDone()) {
-                        putLoop(channel, supplier, asyncCompletionHandler, completion);
-                    } else {
-                        completion.complete();
+                    continue;
+                }
+                if (value == null) {
+                    return true;
+                }
+                if (!accept(value, null)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        /**
+         * Starts with take request, so that values are handled on channel executor as before,
+         * not on the thread that starts the loop.
+         */
+        void start() {
+            if (this.channel.isClosed()) {
+                this.completion.complete();
+                return;
+            }
+            this.channel.take().whenComplete((res, err) -> {
+                    if (accept(res, err)) {
+                        run();
                     }
                 });
-        } else {
-            completion.complete();
         }
     }
 
+    private static <V> StepHandler<V> handler(AsyncCompletionHandler<V> asyncCompletionHandler) {
+        return (value, error, completion) -> asyncCompletionHandler.handle(
+            value != null ? TryMOps.success(value) : TryMOps.fail(error), completion
+        );
+    }
+
     /**
      * Put loop with specified channel, supplier and async completion handler.
      * Interrupts on channel close or explicit completion complete.
@@ -137,7 +330,14 @@ public final class Async {
         AsyncCompletionHandler<Supplier<T>> asyncCompletionHandler
     ) {
         final Completion completion = new Completion();
-        putLoop(channel, supplier, asyncCompletionHandler, completion);
+        new PutLoop<>(
+            channel,
+            supplier,
+            (res, err, cmp) -> asyncCompletionHandler.handle(
+                res != null && res.isPresent() ? TryMOps.success(res.get()) : TryMOps.fail(err), cmp
+            ),
+            completion
+        ).run();
         return completion;
     }
 
@@ -155,49 +355,16 @@ public final class Async {
         Supplier<I> supplier
     ) {
         final Completion completion = new Completion();
-        putLoop(
+        new PutLoop<>(
             channel,
             supplier,
-            (res, cmp) -> {
+            (res, err, cmp) -> {
             },
             completion
-        );
+        ).run();
         return completion;
     }
 
-    /**
-     * Take loop.
-     */
-    private static <T, I> void takeLoop(
-        IChannel<T, I> channel,
-        AsyncCompletionHandler<T> asyncCompletionHandler,
-        Completion completion
-    ) {
-        if (!channel.isClosed()) {
-            channel.take().whenComplete((res, err) -> {
-                    if (res == null && err == null) {
-                        completion.exceptionally(
-                            new AsyncException("No response, no error in result of completable future.")
-                        );
-                    }
-                    try {
-                        final ITryM<T> result = res != null ? TryMOps.success(res) : TryMOps.fail(err);
-                        asyncCompletionHandler.handle(result, completion);
-                    } catch (Throwable t) {
-                        completion.exceptionally(t);
-                        return;
-                    }
-                    if (!completion.isDone()) {
-                        takeLoop(channel, asyncCompletionHandler, completion);
-                    } else {
-                        completion.complete();
-                    }
-                });
-        } else {
-            completion.complete();
-        }
-    }
-
     /**
      * Loops take for specified channel with async completion handler.
      * Interrupts on channel close or explicit completion complete.
@@ -212,7 +379,7 @@ public final class Async {
         AsyncCompletionHandler<T> asyncCompletionHandler
     ) {
         final Completion completion = new Completion();
-        takeLoop(channel, asyncCompletionHandler, completion);
+        new TakeLoop<>(channel, handler(asyncCompletionHandler), completion).start();
         return completion;
     }
 
@@ -230,7 +397,11 @@ public final class Async {
         Consumer<T> consumer
     ) {
         final Completion completion = new Completion();
-        takeLoop(channel, (res, cmp) -> res.foreach(consumer), completion);
+        new TakeLoop<T, I>(channel, (res, err, cmp) -> {
+                if (res != null) {
+                    consumer.accept(res);
+                }
+            }, completion).start();
         return completion;
     }
 
@@ -248,7 +419,11 @@ public final class Async {
         BiConsumer<T, Completion> consumer
     ) {
         final Completion completion = new Completion();
-        takeLoop(channel, (res, cmp) -> res.foreach(r -> consumer.accept(r, cmp)), completion);
+        new TakeLoop<T, I>(channel, (res, err, cmp) -> {
+                if (res != null) {
+                    consumer.accept(res, cmp);
+                }
+            }, completion).start();
         return completion;
     }
 
@@ -269,7 +444,9 @@ public final class Async {
                     }
                     put.whenComplete((putRes, putErr) -> {
                             if (!completion.isDone()) {
-                                pipe(left, right, mapper);
+                                pipe(left, right, mapper, completion);
+                            } else {
+                                completion.complete();
                             }
                         });
                 });
@@ -311,4 +488,231 @@ public final class Async {
     public static <R, T, I> Completion pipe(IChannel<T, I> left, IChannel<R, T> right) {
         return pipe(left, right, Function.<T>identity());
     }
+
+    /**
+     * Parallel pipeline between two channels. Single taker takes values from left channel while less then
+     * parallelism values are in flight, every value is run through its own reduction of transducer on executor,
+     * so transducer is applied to each value independently, and all its results are put to right channel at once.
+     * Take that left channel rejects right away is retried after back off. Put that right channel does not accept,
+     * because of put timeout or full request queue, fails pipeline, so value is never dropped silently.
+     */
+    private static final class Pipeline<R, V, T, I> {
+        private final int parallelism;
+        private final IChannel<T, I> left;
+        private final IChannel<R, V> right;
+        private final ITransducer<V, T> transducer;
+        private final Executor executor;
+        private final boolean isOrdered;
+        private final Completion completion;
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private final AtomicInteger wip = new AtomicInteger();
+        private final AtomicBoolean isFinished = new AtomicBoolean();
+        private volatile boolean isTaking = false;
+        /**
+         * Put of previous value, puts are chained to keep input order. Touched by taker only.
+         */
+        private CompletableFuture<Void> tail = CompletableFuture.completedFuture(null);
+        Pipeline(
+            int parallelism,
+            IChannel<T, I> left,
+            IChannel<R, V> right,
+            ITransducer<V, T> transducer,
+            Executor executor,
+            boolean isOrdered,
+            Completion completion
+        ) {
+            this.parallelism = parallelism;
+            this.left = left;
+            this.right = right;
+            this.transducer = transducer;
+            this.executor = executor;
+            this.isOrdered = isOrdered;
+            this.completion = completion;
+        }
+        /**
+         * Issues next take if there is free slot, completes pipeline once it is stopped and drained.
+         */
+        void next() {
+            if (this.wip.getAndIncrement() != 0) {
+                return;
+            }
+            int missed = 1;
+            do {
+                while (!this.isTaking && this.inFlight.get() < this.parallelism) {
+                    if (this.completion.isDone() || this.left.isClosed() || this.right.isClosed()) {
+                        if (this.inFlight.get() == 0 && this.isFinished.compareAndSet(false, true)) {
+                            this.completion.complete();
+                        }
+                        break;
+                    }
+                    this.isTaking = true;
+                    this.inFlight.incrementAndGet();
+                    this.left.take().whenComplete(this::onTake);
+                }
+                missed = this.wip.addAndGet(-missed);
+            } while (missed != 0);
+        }
+        private void onTake(T value, Throwable error) {
+            if (value == null) {
+                // Take timeout or closed channel, both are checked on next take
+                this.inFlight.decrementAndGet();
+                if (isRejected(error) && !this.left.isClosed()) {
+                    // Rejected right away, taker stays busy till back off passes
+                    backOff(this.executor).thenRun(() -> {
+                            this.isTaking = false;
+                            next();
+                        });
+                    return;
+                }
+            } else {
+                final CompletableFuture<List<V>> results = CompletableFuture.supplyAsync(() -> transduce(value), this.executor);
+                final CompletableFuture<Void> put;
+                if (this.isOrdered) {
+                    put = this.tail.thenCompose(ignored -> results).thenCompose(this::put);
+                    this.tail = put.handle((res, err) -> null);
+                } else {
+                    put = results.thenCompose(this::put);
+                }
+                put.whenComplete((res, err) -> {
+                        if (err != null && !this.right.isClosed()) {
+                            this.completion.exceptionally(err);
+                        }
+                        this.inFlight.decrementAndGet();
+                        next();
+                    });
+            }
+            this.isTaking = false;
+            next();
+        }
+        private List<V> transduce(T value) {
+            final Reduction<ArrayList<V>> reduction =
+                Transducers.into(this.transducer, new ArrayList<>(1), Collections.singletonList(value));
+            if (reduction.isFailed()) {
+                throw reduction.getError().get();
+            }
+            return reduction.get();
+        }
+        private CompletableFuture<Void> put(List<V> values) {
+            if (values.isEmpty()) {
+                return CompletableFuture.completedFuture(null);
+            }
+            final List<Supplier<V>> suppliers = new ArrayList<>(values.size());
+            for (V value : values) {
+                suppliers.add(LangUtils.supply(value));
+            }
+            // Count is not checked, right transducer may filter values out, putAll fails if any value is not accepted
+            return this.right.putAll(suppliers).thenApply(accepted -> null);
+        }
+    }
+
+    /**
+     * Pipes values from left channel to right channel through transducer keeping up to parallelism values
+     * in flight. Transducer is applied to each value independently on common fork join pool, the default
+     * channel executor. Results are put to right channel in order values were taken from left channel.
+     * Completes when left or right channel is closed or completion is done, once values in flight are put,
+     * fails if transducer fails or right channel does not accept value.
+     * @param parallelism max number of values in flight
+     * @param left async channel
+     * @param right async channel
+     * @param transducer transducer from T to V
+     * @param <R> right channel values type
+     * @param <V> right channel input type
+     * @param <T> left channel values type
+     * @param <I> left channel input type
+     * @return completion hook
+     */
+    public static <R, V, T, I> Completion pipeline(
+        int parallelism,
+        IChannel<T, I> left,
+        IChannel<R, V> right,
+        ITransducer<V, T> transducer
+    ) {
+        return pipeline(parallelism, left, right, transducer, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Pipes values from left channel to right channel through transducer keeping up to parallelism values
+     * in flight, see {@link #pipeline(int, IChannel, IChannel, ITransducer)}.
+     * @param parallelism max number of values in flight
+     * @param left async channel
+     * @param right async channel
+     * @param transducer transducer from T to V
+     * @param executor executor that runs transducer
+     * @param <R> right channel values type
+     * @param <V> right channel input type
+     * @param <T> left channel values type
+     * @param <I> left channel input type
+     * @return completion hook
+     */
+    public static <R, V, T, I> Completion pipeline(
+        int parallelism,
+        IChannel<T, I> left,
+        IChannel<R, V> right,
+        ITransducer<V, T> transducer,
+        Executor executor
+    ) {
+        return pipeline(parallelism, left, right, transducer, executor, true);
+    }
+
+    /**
+     * Same as {@link #pipeline(int, IChannel, IChannel, ITransducer)}, but results are put to right channel
+     * as soon as they are ready, so that one slow value does not hold back the rest.
+     * @param parallelism max number of values in flight
+     * @param left async channel
+     * @param right async channel
+     * @param transducer transducer from T to V
+     * @param <R> right channel values type
+     * @param <V> right channel input type
+     * @param <T> left channel values type
+     * @param <I> left channel input type
+     * @return completion hook
+     */
+    public static <R, V, T, I> Completion pipelineUnordered(
+        int parallelism,
+        IChannel<T, I> left,
+        IChannel<R, V> right,
+        ITransducer<V, T> transducer
+    ) {
+        return pipelineUnordered(parallelism, left, right, transducer, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Same as {@link #pipeline(int, IChannel, IChannel, ITransducer, Executor)}, but results are put
+     * to right channel as soon as they are ready.
+     * @param parallelism max number of values in flight
+     * @param left async channel
+     * @param right async channel
+     * @param transducer transducer from T to V
+     * @param executor executor that runs transducer
+     * @param <R> right channel values type
+     * @param <V> right channel input type
+     * @param <T> left channel values type
+     * @param <I> left channel input type
+     * @return completion hook
+     */
+    public static <R, V, T, I> Completion pipelineUnordered(
+        int parallelism,
+        IChannel<T, I> left,
+        IChannel<R, V> right,
+        ITransducer<V, T> transducer,
+        Executor executor
+    ) {
+        return pipeline(parallelism, left, right, transducer, executor, false);
+    }
+
+    private static <R, V, T, I> Completion pipeline(
+        int parallelism,
+        IChannel<T, I> left,
+        IChannel<R, V> right,
+        ITransducer<V, T> transducer,
+        Executor executor,
+        boolean isOrdered
+    ) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be greater then zero");
+        }
+        final Completion completion = new Completion();
+        new Pipeline<>(parallelism, left, right, transducer, executor, isOrdered, completion).next();
+        return completion;
+    }
 }
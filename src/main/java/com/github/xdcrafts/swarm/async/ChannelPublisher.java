@@ -0,0 +1,175 @@
+package com.github.xdcrafts.swarm.async;
+
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Publisher of channel values. Values are taken from channel only when there is outstanding demand,
+ * values that are already buffered are drained in batches up to demand, otherwise single take request
+ * for up to demand values is parked, so subscriber never has more then one take request in channel.
+ * Every subscriber gets its own share of values, channel is not multicast, see {@link Mult}.
+ * Subscription completes when channel gets closed. Values that were taken for cancelled subscription are dropped.
+ * @param <T> value type
+ */
+public final class ChannelPublisher<T> implements IPublisher<T> {
+
+    private static final int DEFAULT_BATCH_SIZE = 256;
+
+    /**
+     * Creates publisher of channel values.
+     * @param channel channel to take values from
+     * @param <T> value type
+     * @return publisher
+     */
+    public static <T> ChannelPublisher<T> publisher(IChannel<T, ?> channel) {
+        return publisher(channel, DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * Creates publisher of channel values.
+     * @param channel channel to take values from
+     * @param maxBatchSize max number of values taken from channel at once
+     * @param <T> value type
+     * @return publisher
+     */
+    public static <T> ChannelPublisher<T> publisher(IChannel<T, ?> channel, int maxBatchSize) {
+        if (maxBatchSize < 1) {
+            throw new IllegalArgumentException("Batch size must be greater then zero");
+        }
+        return new ChannelPublisher<>(channel, maxBatchSize);
+    }
+
+    private final IChannel<T, ?> channel;
+    private final int maxBatchSize;
+
+    private ChannelPublisher(IChannel<T, ?> channel, int maxBatchSize) {
+        this.channel = channel;
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    @Override
+    public void subscribe(ISubscriber<? super T> subscriber) {
+        if (subscriber == null) {
+            throw new NullPointerException("Subscriber must not be null");
+        }
+        final ChannelSubscription<T> subscription = new ChannelSubscription<>(this.channel, this.maxBatchSize, subscriber);
+        subscriber.onSubscribe(subscription);
+        subscription.start();
+    }
+
+    /**
+     * Subscription that serializes all signals with work-in-progress drain loop.
+     */
+    private static final class ChannelSubscription<T> implements ISubscription {
+
+        private final IChannel<T, ?> channel;
+        private final int maxBatchSize;
+        private final ISubscriber<? super T> subscriber;
+
+        private final AtomicLong demand = new AtomicLong();
+        /**
+         * Starts at one, so that nothing is signalled before onSubscribe returns.
+         */
+        private final AtomicInteger wip = new AtomicInteger(1);
+        private final Queue<T> ready = new ConcurrentLinkedQueue<>();
+
+        private volatile boolean isCancelled = false;
+        private volatile boolean isTerminated = false;
+        private volatile Throwable error;
+        private volatile CompletableFuture<List<T>> take;
+
+        ChannelSubscription(IChannel<T, ?> channel, int maxBatchSize, ISubscriber<? super T> subscriber) {
+            this.channel = channel;
+            this.maxBatchSize = maxBatchSize;
+            this.subscriber = subscriber;
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                this.error = new IllegalArgumentException("Requested number of values must be greater then zero");
+            } else {
+                this.demand.getAndAccumulate(n, (current, added) -> {
+                        final long sum = current + added;
+                        return sum < 0 ? Long.MAX_VALUE : sum;
+                    });
+            }
+            drain();
+        }
+
+        @Override
+        public void cancel() {
+            this.isCancelled = true;
+            drain();
+        }
+
+        void start() {
+            drain(1);
+        }
+
+        private void drain() {
+            if (this.wip.getAndIncrement() == 0) {
+                drain(1);
+            }
+        }
+
+        private void drain(int missed) {
+            do {
+                emit();
+                missed = this.wip.addAndGet(-missed);
+            } while (missed != 0);
+        }
+
+        private void emit() {
+            for (;;) {
+                if (this.isCancelled || this.isTerminated) {
+                    final CompletableFuture<List<T>> pending = this.take;
+                    if (pending != null) {
+                        pending.cancel(false);
+                    }
+                    this.ready.clear();
+                    return;
+                }
+                long requested = this.demand.get();
+                while (requested > 0 && !this.ready.isEmpty()) {
+                    this.subscriber.onNext(this.ready.poll());
+                    requested = this.demand.decrementAndGet();
+                }
+                if (this.error != null) {
+                    this.isTerminated = true;
+                    this.subscriber.onError(this.error);
+                    continue;
+                }
+                if (requested == 0 || !this.ready.isEmpty() || this.take != null) {
+                    return;
+                }
+                if (this.channel.isClosed()) {
+                    this.isTerminated = true;
+                    this.subscriber.onComplete();
+                    continue;
+                }
+                final int max = (int) Math.min(requested, this.maxBatchSize);
+                if (this.channel.drainTo(this.ready, max) > 0) {
+                    continue;
+                }
+                final CompletableFuture<List<T>> batch = this.channel.takeBatch(max);
+                this.take = batch;
+                batch.whenComplete((values, err) -> {
+                        if (values != null) {
+                            this.ready.addAll(values);
+                        } else if (!(err instanceof TimeoutException) && !this.channel.isClosed()) {
+                            this.error = err;
+                        }
+                        this.take = null;
+                        drain();
+                    });
+                return;
+            }
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package com.github.xdcrafts.swarm.async;
+
+import com.github.xdcrafts.swarm.util.LangUtils;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Subscriber that puts values to channel. It requests prefetch values up front and requests more
+ * in batches of half prefetch once puts of previous values complete, so upstream is backpressured
+ * by channel buffer and never has more then prefetch puts in flight. Prefetch should not exceed
+ * max put requests of channel.
+ * Fails and cancels subscription if put fails, closes channel on completion if asked to.
+ * @param <T> value type
+ */
+public final class ChannelSubscriber<T> implements ISubscriber<T> {
+
+    private static final int DEFAULT_PREFETCH = 64;
+
+    /**
+     * Creates subscriber that closes channel on completion.
+     * @param channel channel to put values to
+     * @param <T> value type
+     * @return subscriber
+     */
+    public static <T> ChannelSubscriber<T> subscriber(IChannel<?, T> channel) {
+        return subscriber(channel, DEFAULT_PREFETCH, true);
+    }
+
+    /**
+     * Creates subscriber.
+     * @param channel channel to put values to
+     * @param prefetch max number of requested values that are not put yet
+     * @param closeOnComplete should channel be closed when upstream completes
+     * @param <T> value type
+     * @return subscriber
+     */
+    public static <T> ChannelSubscriber<T> subscriber(IChannel<?, T> channel, int prefetch, boolean closeOnComplete) {
+        if (prefetch < 1) {
+            throw new IllegalArgumentException("Prefetch must be greater then zero");
+        }
+        return new ChannelSubscriber<>(channel, prefetch, closeOnComplete);
+    }
+
+    private final IChannel<?, T> channel;
+    private final int prefetch;
+    private final int limit;
+    private final boolean closeOnComplete;
+
+    private final CompletableFuture<Void> completion = new CompletableFuture<>();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger accepted = new AtomicInteger();
+
+    private volatile ISubscription subscription;
+    private volatile boolean isUpstreamDone = false;
+
+    private ChannelSubscriber(IChannel<?, T> channel, int prefetch, boolean closeOnComplete) {
+        this.channel = channel;
+        this.prefetch = prefetch;
+        this.limit = Math.max(1, prefetch / 2);
+        this.closeOnComplete = closeOnComplete;
+    }
+
+    /**
+     * Future that completes once upstream completed and all its values are put to channel,
+     * or fails with upstream or put error.
+     * @return completion future
+     */
+    public CompletableFuture<Void> completion() {
+        return this.completion;
+    }
+
+    @Override
+    public void onSubscribe(ISubscription s) {
+        if (this.subscription != null || this.completion.isDone()) {
+            s.cancel();
+            return;
+        }
+        this.subscription = s;
+        s.request(this.prefetch);
+    }
+
+    @Override
+    public void onNext(T value) {
+        if (value == null) {
+            throw new NullPointerException("Value must not be null");
+        }
+        this.inFlight.incrementAndGet();
+        this.channel.put(LangUtils.supply(value)).whenComplete((res, err) -> {
+                if (err != null) {
+                    this.subscription.cancel();
+                    this.completion.completeExceptionally(err);
+                    return;
+                }
+                if (this.accepted.incrementAndGet() == this.limit) {
+                    this.accepted.addAndGet(-this.limit);
+                    if (!this.completion.isDone()) {
+                        this.subscription.request(this.limit);
+                    }
+                }
+                if (this.inFlight.decrementAndGet() == 0 && this.isUpstreamDone) {
+                    complete();
+                }
+            });
+    }
+
+    @Override
+    public void onError(Throwable error) {
+        this.completion.completeExceptionally(error);
+    }
+
+    @Override
+    public void onComplete() {
+        this.isUpstreamDone = true;
+        if (this.inFlight.get() == 0) {
+            complete();
+        }
+    }
+
+    private void complete() {
+        if (this.completion.complete(null) && this.closeOnComplete) {
+            this.channel.close();
+        }
+    }
+}
@@ -21,6 +21,14 @@ public interface IBuffer<T> {
      */
     Optional<T> remove();
 
+    /**
+     * Takes value from buffer if present without wrapping it into optional.
+     * @return value or null if buffer is empty
+     */
+    default T poll() {
+        return remove().orElse(null);
+    }
+
     /**
      * Is this buffer full.
      * @return boolean
@@ -38,4 +46,22 @@ public interface IBuffer<T> {
      * @return size
      */
     int size();
+
+    /**
+     * Number of values that can be added to this buffer right now. Buffers that can not tell it,
+     * e.g. ones bound by bytes rather than values, only promise room for one value if they are not full.
+     * @return remaining capacity
+     */
+    default int remainingCapacity() {
+        return isFull() ? 0 : 1;
+    }
+
+    /**
+     * Number of values this buffer discarded so far to stay within its capacity,
+     * buffers that never discard values return zero.
+     * @return dropped values count
+     */
+    default long droppedCount() {
+        return 0;
+    }
 }
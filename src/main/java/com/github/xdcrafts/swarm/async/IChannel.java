@@ -1,7 +1,16 @@
 package com.github.xdcrafts.swarm.async;
 
+import com.github.xdcrafts.swarm.util.FutureUtils;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.function.Supplier;
 
 /**
@@ -12,7 +21,8 @@ import java.util.function.Supplier;
 public interface IChannel<T, I> {
 
     /**
-     * Close channel.
+     * Close channel. Puts to closed channel fail, values that are already in channel can still be taken,
+     * take fails once channel has no values left.
      */
     void close();
 
@@ -28,6 +38,77 @@ public interface IChannel<T, I> {
      */
     CompletableFuture<T> take();
 
+    /**
+     * Async take of up to max values from channel. Completes as soon as at least one value is available.
+     * @param max max number of values to take
+     * @return completable future with non empty list of values
+     */
+    CompletableFuture<List<T>> takeBatch(int max);
+
+    /**
+     * Non-blocking take of up to max values that are ready right now. Values are evaluated
+     * on the calling thread.
+     * @param target collection to add values to
+     * @param max max number of values to take
+     * @return number of values added to target
+     */
+    int drainTo(Collection<? super T> target, int max);
+
+    /**
+     * Non-blocking take of single value that is ready right now, value is evaluated on the calling thread.
+     * Unlike take, it does not create any future, so taking from channel that holds values costs nothing extra.
+     * @return value or null if there is no value ready
+     */
+    default T poll() {
+        final List<T> values = new ArrayList<>(1);
+        return drainTo(values, 1) > 0 ? values.get(0) : null;
+    }
+
+    /**
+     * Blocking take from channel, parks calling thread till value is available.
+     * Value is evaluated on the calling thread.
+     * @param timeout max time to wait
+     * @return value
+     * @throws InterruptedException if thread is interrupted while waiting
+     * @throws TimeoutException if no value arrived within timeout
+     */
+    default T takeBlocking(Duration timeout) throws InterruptedException, TimeoutException {
+        return await(take(), timeout);
+    }
+
+    /**
+     * Blocking put to channel, parks calling thread till value is accepted.
+     * @param value supplier of value of type I
+     * @param timeout max time to wait
+     * @return false if value was not put, e.g. it was filtered out by transducer
+     * @throws InterruptedException if thread is interrupted while waiting
+     * @throws TimeoutException if value was not accepted within timeout
+     */
+    default boolean putBlocking(Supplier<I> value, Duration timeout) throws InterruptedException, TimeoutException {
+        return await(put(value), timeout).isPresent();
+    }
+
+    /**
+     * Waits for future and unwraps its failure.
+     */
+    static <V> V await(CompletableFuture<V> future, Duration timeout) throws InterruptedException, TimeoutException {
+        try {
+            return future.get(timeout.toNanos(), TimeUnit.NANOSECONDS);
+        } catch (ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof TimeoutException) {
+                throw (TimeoutException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new AsyncException(cause);
+        } catch (TimeoutException e) {
+            future.cancel(false);
+            throw e;
+        }
+    }
+
     /**
      * Async put to channel.
      * @param value supplier of value of type I
@@ -36,6 +117,31 @@ public interface IChannel<T, I> {
      */
     CompletableFuture<Optional<Supplier<T>>> put(Supplier<I> value);
 
+    /**
+     * Non-blocking put to channel, succeeds only if there is room in buffer right now and no puts wait before it.
+     * Value goes through channel transducer and wakes parked takes, like put does, but no future is created.
+     * @param value supplier of value of type I
+     * @return true if value was accepted, false if buffer is full or channel is closed
+     */
+    boolean offer(Supplier<I> value);
+
+    /**
+     * Async put of batch of values to channel. All values go through channel transducer in one pass,
+     * values that fit into buffer are accepted right away, the rest wait for free space.
+     * @param values suppliers of values of type I
+     * @return completable future with number of accepted values, values that were filtered out by
+     * transducer are not counted. Future fails if any value is rejected because request queue is full,
+     * is not accepted within put timeout or its supplier fails, values accepted before that stay in channel
+     */
+    default CompletableFuture<Integer> putAll(Iterable<Supplier<I>> values) {
+        final List<CompletableFuture<Optional<Supplier<T>>>> puts = new ArrayList<>();
+        for (Supplier<I> value : values) {
+            puts.add(put(value));
+        }
+        return FutureUtils.sequence(puts)
+            .thenApply(results -> (int) results.stream().filter(Optional::isPresent).count());
+    }
+
     /**
      * Async put to channel.
      * @param future puts asynchronous value to channel
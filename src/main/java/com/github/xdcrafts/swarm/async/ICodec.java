@@ -0,0 +1,79 @@
+package com.github.xdcrafts.swarm.async;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Binary codec of values that leave heap.
+ * @param <T> value type
+ */
+public interface ICodec<T> {
+
+    /**
+     * Encodes value.
+     * @param value value
+     * @return bytes
+     */
+    byte[] encode(T value);
+
+    /**
+     * Decodes value.
+     * @param bytes buffer with exactly one encoded value, valid only during this call
+     * @return value
+     */
+    T decode(ByteBuffer bytes);
+
+    /**
+     * UTF-8 strings codec.
+     * @return codec
+     */
+    static ICodec<String> utf8() {
+        return new ICodec<String>() {
+            @Override
+            public byte[] encode(String value) {
+                return value.getBytes(StandardCharsets.UTF_8);
+            }
+            @Override
+            public String decode(ByteBuffer bytes) {
+                return StandardCharsets.UTF_8.decode(bytes).toString();
+            }
+        };
+    }
+
+    /**
+     * Java serialization codec.
+     * @param <T> value type
+     * @return codec
+     */
+    static <T extends Serializable> ICodec<T> serializable() {
+        return new ICodec<T>() {
+            @Override
+            public byte[] encode(T value) {
+                final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                try (ObjectOutputStream output = new ObjectOutputStream(bytes)) {
+                    output.writeObject(value);
+                } catch (IOException e) {
+                    throw new AsyncException(e);
+                }
+                return bytes.toByteArray();
+            }
+            @Override
+            @SuppressWarnings("unchecked")
+            public T decode(ByteBuffer bytes) {
+                final byte[] array = new byte[bytes.remaining()];
+                bytes.get(array);
+                try (ObjectInputStream input = new ObjectInputStream(new ByteArrayInputStream(array))) {
+                    return (T) input.readObject();
+                } catch (IOException | ClassNotFoundException e) {
+                    throw new AsyncException(e);
+                }
+            }
+        };
+    }
+}
@@ -0,0 +1,12 @@
+package com.github.xdcrafts.swarm.async;
+
+import java.util.function.Supplier;
+
+/**
+ * Marker of supplier that is expensive to evaluate. Channels with direct delivery still evaluate
+ * such suppliers on their executor instead of the thread that performs hand-off.
+ * @param <T> value type
+ */
+@FunctionalInterface
+public interface IExpensiveSupplier<T> extends Supplier<T> {
+}
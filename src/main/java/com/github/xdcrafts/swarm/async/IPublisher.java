@@ -0,0 +1,16 @@
+package com.github.xdcrafts.swarm.async;
+
+/**
+ * Demand-driven publisher, same contract as Reactive Streams Publisher, so that it is adapted
+ * to any Reactive Streams implementation with method references.
+ * @param <T> value type
+ */
+@FunctionalInterface
+public interface IPublisher<T> {
+
+    /**
+     * Subscribes subscriber, values are published only after subscriber requests them.
+     * @param subscriber subscriber
+     */
+    void subscribe(ISubscriber<? super T> subscriber);
+}
@@ -0,0 +1,35 @@
+package com.github.xdcrafts.swarm.async;
+
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.BooleanSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Channel that supports claimed operations, so it can take part in alternative operations, see {@link Select}.
+ * @param <T> value type
+ * @param <I> input value type
+ */
+public interface ISelectableChannel<T, I> extends IChannel<T, I> {
+
+    /**
+     * Async take from channel that happens only if claim succeeds. Claim is called right before
+     * value would be taken, possibly several times if channel runs out of values in between, and
+     * must keep returning true once it returned true. If claim returns false request is cancelled.
+     * @param claim claim of this operation
+     * @return completable future with value
+     */
+    CompletableFuture<T> take(BooleanSupplier claim);
+
+    /**
+     * Async put to channel that happens only if claim succeeds. Claim is called right before
+     * value would be put into buffer, possibly several times if buffer gets full in between, and
+     * must keep returning true once it returned true. If claim returns false request is cancelled.
+     * Value goes through channel transducer right away.
+     * @param value supplier of value of type I
+     * @param claim claim of this operation
+     * @return completable future with optional, if optional is
+     * empty than put is not done.
+     */
+    CompletableFuture<Optional<Supplier<T>>> put(Supplier<I> value, BooleanSupplier claim);
+}
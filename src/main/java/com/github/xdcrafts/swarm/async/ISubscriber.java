@@ -0,0 +1,32 @@
+package com.github.xdcrafts.swarm.async;
+
+/**
+ * Demand-driven subscriber, same contract as Reactive Streams Subscriber.
+ * Signals are never sent concurrently.
+ * @param <T> value type
+ */
+public interface ISubscriber<T> {
+
+    /**
+     * Called once before any other signal.
+     * @param subscription subscription to request values with
+     */
+    void onSubscribe(ISubscription subscription);
+
+    /**
+     * Next value, never called more times then values were requested.
+     * @param value value
+     */
+    void onNext(T value);
+
+    /**
+     * Terminal failure.
+     * @param error error
+     */
+    void onError(Throwable error);
+
+    /**
+     * Terminal completion.
+     */
+    void onComplete();
+}
@@ -0,0 +1,18 @@
+package com.github.xdcrafts.swarm.async;
+
+/**
+ * Link between publisher and subscriber, same contract as Reactive Streams Subscription.
+ */
+public interface ISubscription {
+
+    /**
+     * Adds demand, total demand is capped at Long.MAX_VALUE that means unbounded.
+     * @param n number of values, must be greater then zero
+     */
+    void request(long n);
+
+    /**
+     * Stops publishing, some values may still arrive.
+     */
+    void cancel();
+}
@@ -0,0 +1,187 @@
+package com.github.xdcrafts.swarm.async;
+
+import com.github.xdcrafts.swarm.util.LangUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Multicast of source channel. Every value taken from source is put to every tap, values are taken
+ * from source in batches and put to each tap with single putAll, so fan-out costs one future per tap
+ * per batch. Value is evaluated once by source and shared by reference between taps.
+ * Slow taps are handled by their own buffers: tap with fixed size buffer applies backpressure,
+ * so next batch is not taken from source till every tap accepts current one or its put times out,
+ * tap with sliding or dropping buffer never blocks and drops values instead.
+ * Source is not consumed while there are no taps. Take that source rejects right away, e.g. because its
+ * take queue is full, is retried after short back off.
+ * @param <T> source values type
+ */
+public final class Mult<T> {
+
+    private static final int DEFAULT_BATCH_SIZE = 64;
+
+    /**
+     * Single subscriber.
+     */
+    private static final class Tap<T> {
+        final IChannel<?, T> channel;
+        final boolean closeWithSource;
+        Tap(IChannel<?, T> channel, boolean closeWithSource) {
+            this.channel = channel;
+            this.closeWithSource = closeWithSource;
+        }
+    }
+
+    /**
+     * Creates multicast of source channel.
+     * @param source source channel
+     * @param <T> source values type
+     * @return mult without taps
+     */
+    public static <T> Mult<T> mult(IChannel<T, ?> source) {
+        return mult(source, DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * Creates multicast of source channel.
+     * @param source source channel
+     * @param maxBatchSize max number of values taken from source at once
+     * @param <T> source values type
+     * @return mult without taps
+     */
+    public static <T> Mult<T> mult(IChannel<T, ?> source, int maxBatchSize) {
+        if (maxBatchSize < 1) {
+            throw new IllegalArgumentException("Batch size must be greater then zero");
+        }
+        return new Mult<>(source, maxBatchSize);
+    }
+
+    private final IChannel<T, ?> source;
+    private final int maxBatchSize;
+    private final List<Tap<T>> taps = new CopyOnWriteArrayList<>();
+    private final AtomicBoolean isRunning = new AtomicBoolean();
+
+    private Mult(IChannel<T, ?> source, int maxBatchSize) {
+        this.source = source;
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    /**
+     * Adds tap that is closed when source gets closed.
+     * @param channel tap channel
+     * @return this mult instance
+     */
+    public Mult<T> tap(IChannel<?, T> channel) {
+        return tap(channel, true);
+    }
+
+    /**
+     * Adds tap.
+     * @param channel tap channel
+     * @param closeWithSource should tap be closed when source gets closed
+     * @return this mult instance
+     */
+    public Mult<T> tap(IChannel<?, T> channel, boolean closeWithSource) {
+        this.taps.add(new Tap<>(channel, closeWithSource));
+        if (this.isRunning.compareAndSet(false, true)) {
+            loop();
+        }
+        return this;
+    }
+
+    /**
+     * Removes tap, it stops receiving values after batch in flight.
+     * @param channel tap channel
+     * @return this mult instance
+     */
+    public Mult<T> untap(IChannel<?, T> channel) {
+        this.taps.removeIf(tap -> tap.channel == channel);
+        return this;
+    }
+
+    /**
+     * Removes all taps.
+     * @return this mult instance
+     */
+    public Mult<T> untapAll() {
+        this.taps.clear();
+        return this;
+    }
+
+    /**
+     * Takes batches from source and fans them out till source is closed or there are no taps left.
+     * Steps that complete synchronously are looped here instead of recursion.
+     */
+    private void loop() {
+        for (;;) {
+            final CompletableFuture<?> step = step();
+            if (step == null) {
+                this.isRunning.set(false);
+                if (this.taps.isEmpty() || this.source.isClosed() || !this.isRunning.compareAndSet(false, true)) {
+                    return;
+                }
+            } else if (!step.isDone()) {
+                step.whenComplete((res, err) -> loop());
+                return;
+            }
+        }
+    }
+
+    /**
+     * Takes batch from source and puts it to every tap.
+     * @return future that completes when every tap accepted batch, null if there is nothing to do
+     */
+    private CompletableFuture<?> step() {
+        if (this.source.isClosed()) {
+            closeTaps();
+            return null;
+        }
+        if (this.taps.isEmpty()) {
+            return null;
+        }
+        return this.source.takeBatch(this.maxBatchSize)
+            .handle((values, err) -> {
+                    if (values != null) {
+                        return fanOut(values);
+                    }
+                    return Async.isRejected(err) && !this.source.isClosed()
+                        ? Async.backOff(ForkJoinPool.commonPool()) : CompletableFuture.<Void>completedFuture(null);
+                })
+            .thenCompose(Function.identity());
+    }
+
+    private CompletableFuture<Void> fanOut(List<T> values) {
+        final List<Supplier<T>> suppliers = new ArrayList<>(values.size());
+        for (T value : values) {
+            suppliers.add(LangUtils.supply(value));
+        }
+        final List<CompletableFuture<?>> puts = new ArrayList<>(this.taps.size());
+        for (Tap<T> tap : this.taps) {
+            if (tap.channel.isClosed()) {
+                this.taps.remove(tap);
+                continue;
+            }
+            final CompletableFuture<Integer> put = tap.channel.putAll(suppliers);
+            if (!put.isDone()) {
+                puts.add(put.handle((res, err) -> res));
+            }
+        }
+        return puts.isEmpty()
+            ? CompletableFuture.completedFuture(null) : CompletableFuture.allOf(puts.toArray(new CompletableFuture<?>[0]));
+    }
+
+    private void closeTaps() {
+        for (Tap<T> tap : this.taps) {
+            this.taps.remove(tap);
+            if (tap.closeWithSource) {
+                tap.channel.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,199 @@
+package com.github.xdcrafts.swarm.async;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BooleanSupplier;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Alternative operations over several channels. Registers all take and put operations on their
+ * channels at once and completes exactly one of them, the rest are cancelled and leave their channels.
+ * If every operation fails (timeout, closed channel, full request queue) select fails with the last error.
+ * Only channels that support claimed operations can be selected, see {@link ISelectableChannel}.
+ */
+public final class Select implements Supplier<CompletableFuture<Select.Selected>> {
+
+    /**
+     * Order in which ready operations are preferred.
+     */
+    public enum Mode {
+        /**
+         * Operations are tried in order they were added.
+         */
+        PRIORITY,
+        /**
+         * Operations are tried in random order.
+         */
+        RANDOM
+    }
+
+    /**
+     * Result of select: completed operation and its value.
+     */
+    public static final class Selected {
+        private final int index;
+        private final IChannel<?, ?> channel;
+        private final boolean isTake;
+        private final Object value;
+        private Selected(int index, IChannel<?, ?> channel, boolean isTake, Object value) {
+            this.index = index;
+            this.channel = channel;
+            this.isTake = isTake;
+            this.value = value;
+        }
+        /**
+         * Index of completed operation, in order operations were added.
+         * @return index
+         */
+        public int getIndex() {
+            return this.index;
+        }
+        public IChannel<?, ?> getChannel() {
+            return this.channel;
+        }
+        public boolean isTake() {
+            return this.isTake;
+        }
+        /**
+         * Value of completed operation, taken value for take and optional supplier for put.
+         * @param <V> value type
+         * @return value
+         */
+        @SuppressWarnings("unchecked")
+        public <V> V getValue() {
+            return (V) this.value;
+        }
+        @Override
+        public String toString() {
+            return "Selected{"
+                    + "index=" + index
+                    + ", isTake=" + isTake
+                    + ", value=" + value
+                    + '}';
+        }
+    }
+
+    /**
+     * Single alternative operation.
+     */
+    private static final class Operation {
+        final IChannel<?, ?> channel;
+        final boolean isTake;
+        final Function<BooleanSupplier, CompletableFuture<?>> register;
+        Operation(IChannel<?, ?> channel, boolean isTake, Function<BooleanSupplier, CompletableFuture<?>> register) {
+            this.channel = channel;
+            this.isTake = isTake;
+            this.register = register;
+        }
+    }
+
+    /**
+     * Creates new select.
+     * @return empty select
+     */
+    public static Select select() {
+        return new Select();
+    }
+
+    /**
+     * Winner of select that failed to register its operations.
+     */
+    private static final Operation NOBODY = new Operation(null, false, null);
+
+    private final List<Operation> operations = new ArrayList<>();
+    private volatile Mode mode = Mode.PRIORITY;
+
+    private Select() {
+        // Nothing
+    }
+
+    /**
+     * Adds take operation.
+     * @param channel channel to take from
+     * @return this select instance
+     */
+    public Select take(ISelectableChannel<?, ?> channel) {
+        this.operations.add(new Operation(channel, true, channel::take));
+        return this;
+    }
+
+    /**
+     * Adds put operation.
+     * @param channel channel to put to
+     * @param value supplier of value of type I
+     * @param <I> channel input type
+     * @return this select instance
+     */
+    public <I> Select put(ISelectableChannel<?, I> channel, Supplier<I> value) {
+        this.operations.add(new Operation(channel, false, claim -> channel.put(value, claim)));
+        return this;
+    }
+
+    /**
+     * Setup mode.
+     * @param m mode
+     * @return this select instance
+     */
+    public Select withMode(Mode m) {
+        this.mode = m;
+        return this;
+    }
+
+    /**
+     * Runs select. Same select may be run several times. If operation fails to register, operations
+     * registered before it are cancelled and error is rethrown.
+     * @return completable future with completed operation
+     */
+    @Override
+    public CompletableFuture<Selected> get() {
+        final int size = this.operations.size();
+        final CompletableFuture<Selected> result = new CompletableFuture<>();
+        if (size == 0) {
+            result.completeExceptionally(new AsyncException("Nothing to select."));
+            return result;
+        }
+        final List<Integer> order = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            order.add(i);
+        }
+        if (this.mode == Mode.RANDOM) {
+            Collections.shuffle(order, ThreadLocalRandom.current());
+        }
+        final AtomicReference<Operation> winner = new AtomicReference<>();
+        final AtomicInteger pending = new AtomicInteger(size);
+        final List<CompletableFuture<?>> registered = new ArrayList<>(size);
+        try {
+            for (int index : order) {
+                final Operation operation = this.operations.get(index);
+                if (winner.get() != null) {
+                    pending.decrementAndGet();
+                    continue;
+                }
+                final CompletableFuture<?> future = operation.register.apply(
+                    () -> winner.compareAndSet(null, operation) || winner.get() == operation
+                );
+                registered.add(future);
+                future.whenComplete((res, err) -> {
+                        if (err == null) {
+                            result.complete(new Selected(index, operation.channel, operation.isTake, res));
+                        } else if (winner.get() == operation || pending.decrementAndGet() == 0) {
+                            result.completeExceptionally(err);
+                        }
+                    });
+            }
+        } catch (RuntimeException | Error e) {
+            // Nothing wins any more, so that registered operations that are already being fulfilled give up
+            winner.compareAndSet(null, NOBODY);
+            registered.forEach(future -> future.cancel(false));
+            throw e;
+        }
+        result.whenComplete((res, err) -> registered.forEach(future -> future.cancel(false)));
+        return result;
+    }
+}
@@ -0,0 +1,295 @@
+package com.github.xdcrafts.swarm.async;
+
+import com.github.xdcrafts.swarm.util.LangUtils;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Group of channels that looks like single channel. Keys are hashed into key groups and every key group
+ * is owned by one shard, so all values of a key go to the same shard and are taken in the order they were put.
+ * Every consumer thread has home shard, take tries home shard first and then takes from other shards,
+ * so consumer is never idle while some shard has values. Consumer whose home shard is empty also steals
+ * whole key group from the busiest shard, so that further puts of that group go to its home shard.
+ * Only key group that has no values left in its shard is stolen, so per key order is preserved.
+ * Value is evaluated on put to get its key, key function should be cheap, it is applied on take as well.
+ * Closing closes every shard, values that are left in shards can still be taken.
+ * Shards have their own timeouts and request limits. Shards built by builder with metrics share its name,
+ * so they are registered in JMX as name, name-2 and so on, one bean per shard.
+ * @param <T> value type
+ */
+public final class ShardedChannel<T> implements IChannel<T, T> {
+
+    private static final int GROUPS_PER_SHARD = 16;
+
+    /**
+     * Creates sharded channel.
+     * @param shards number of shards
+     * @param key function that gives key of value
+     * @param shardFactory supplier of shard channels, e.g. channel builder
+     * @param <T> value type
+     * @return sharded channel
+     */
+    public static <T> ShardedChannel<T> sharded(
+        int shards, Function<? super T, ?> key, Supplier<? extends ISelectableChannel<T, T>> shardFactory
+    ) {
+        if (shards < 1) {
+            throw new IllegalArgumentException("Number of shards must be greater then zero");
+        }
+        final List<ISelectableChannel<T, T>> channels = new ArrayList<>(shards);
+        for (int i = 0; i < shards; i++) {
+            channels.add(shardFactory.get());
+        }
+        return new ShardedChannel<>(channels, key);
+    }
+
+    private final List<ISelectableChannel<T, T>> shards;
+    private final Function<? super T, ?> key;
+    private final int groupMask;
+
+    /**
+     * Shard that owns key group, negative while group moves to shard -owner - 1.
+     */
+    private final AtomicIntegerArray owners;
+    /**
+     * Number of values of key group that are put, but not taken yet.
+     */
+    private final AtomicIntegerArray groupSizes;
+    private final AtomicIntegerArray shardSizes;
+    private final AtomicInteger stealCursor = new AtomicInteger();
+
+    private volatile boolean isClosed = false;
+
+    private ShardedChannel(List<ISelectableChannel<T, T>> shards, Function<? super T, ?> key) {
+        this.shards = shards;
+        this.key = key;
+        final int groups = Integer.highestOneBit(shards.size() * GROUPS_PER_SHARD - 1) << 1;
+        this.groupMask = groups - 1;
+        this.owners = new AtomicIntegerArray(groups);
+        for (int group = 0; group < groups; group++) {
+            this.owners.set(group, group % shards.size());
+        }
+        this.groupSizes = new AtomicIntegerArray(groups);
+        this.shardSizes = new AtomicIntegerArray(shards.size());
+    }
+
+    /**
+     * Number of shards.
+     * @return shards count
+     */
+    public int shards() {
+        return this.shards.size();
+    }
+
+    /**
+     * Shard that owns key now.
+     * @param k key
+     * @return shard index
+     */
+    public int shardOf(Object k) {
+        final int owner = this.owners.get(groupOfKey(k));
+        return owner < 0 ? -owner - 1 : owner;
+    }
+
+    @Override
+    public void close() {
+        this.isClosed = true;
+        this.shards.forEach(IChannel::close);
+    }
+
+    @Override
+    public boolean isClosed() {
+        return this.isClosed;
+    }
+
+    @Override
+    public CompletableFuture<T> take() {
+        final CompletableFuture<T> takeRequest = new CompletableFuture<>();
+        final T ready = poll();
+        if (ready != null) {
+            takeRequest.complete(ready);
+            return takeRequest;
+        }
+        if (this.isClosed) {
+            takeRequest.completeExceptionally(new AsyncException("Channel is closed."));
+            return takeRequest;
+        }
+        final int home = home();
+        final Select select = Select.select();
+        for (int i = 0; i < this.shards.size(); i++) {
+            select.take(this.shards.get((home + i) % this.shards.size()));
+        }
+        final CompletableFuture<Select.Selected> selected = select.get();
+        selected.whenComplete((res, err) -> {
+                if (err != null) {
+                    takeRequest.completeExceptionally(err);
+                    return;
+                }
+                final T value = res.getValue();
+                taken(value, (home + res.getIndex()) % this.shards.size());
+                takeRequest.complete(value);
+            });
+        takeRequest.whenComplete((res, err) -> selected.cancel(false));
+        return takeRequest;
+    }
+
+    @Override
+    public CompletableFuture<List<T>> takeBatch(int max) {
+        if (max < 1) {
+            throw new IllegalArgumentException("Batch size must be greater then zero");
+        }
+        final List<T> values = new ArrayList<>(Math.min(max, 64));
+        if (drainTo(values, max) > 0) {
+            return CompletableFuture.completedFuture(values);
+        }
+        return take().thenApply(value -> {
+                values.add(value);
+                drainTo(values, max - 1);
+                return values;
+            });
+    }
+
+    @Override
+    public int drainTo(Collection<? super T> target, int max) {
+        final int home = home();
+        final List<T> values = new ArrayList<>(Math.min(max, 64));
+        for (int i = 0; i < this.shards.size() && values.size() < max; i++) {
+            final int shard = (home + i) % this.shards.size();
+            final int from = values.size();
+            this.shards.get(shard).drainTo(values, max - from);
+            for (int v = from; v < values.size(); v++) {
+                taken(values.get(v), shard);
+            }
+            if (i == 0 && from == values.size()) {
+                steal(home);
+            }
+        }
+        target.addAll(values);
+        return values.size();
+    }
+
+    @Override
+    public T poll() {
+        final int home = home();
+        for (int i = 0; i < this.shards.size(); i++) {
+            final int shard = (home + i) % this.shards.size();
+            final T value = this.shards.get(shard).poll();
+            if (value != null) {
+                taken(value, shard);
+                return value;
+            }
+            if (i == 0) {
+                steal(home);
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public boolean offer(Supplier<T> value) {
+        if (this.isClosed) {
+            return false;
+        }
+        final T v = value.get();
+        final int group = groupOfKey(this.key.apply(v));
+        final int shard = acquire(group);
+        if (this.shards.get(shard).offer(LangUtils.supply(v))) {
+            return true;
+        }
+        release(group, shard);
+        return false;
+    }
+
+    @Override
+    public CompletableFuture<Optional<Supplier<T>>> put(Supplier<T> value) {
+        if (this.isClosed) {
+            final CompletableFuture<Optional<Supplier<T>>> putRequest = new CompletableFuture<>();
+            putRequest.completeExceptionally(new AsyncException("Channel is closed."));
+            return putRequest;
+        }
+        final T v = value.get();
+        final int group = groupOfKey(this.key.apply(v));
+        final int shard = acquire(group);
+        final CompletableFuture<Optional<Supplier<T>>> putRequest = this.shards.get(shard).put(LangUtils.supply(v));
+        putRequest.whenComplete((res, err) -> {
+                if (err != null || !res.isPresent()) {
+                    release(group, shard);
+                }
+            });
+        return putRequest;
+    }
+
+    /**
+     * Home shard of current thread.
+     */
+    private int home() {
+        return (int) (Thread.currentThread().getId() % this.shards.size());
+    }
+
+    private int groupOfKey(Object k) {
+        final int hash = k == null ? 0 : k.hashCode();
+        return (hash ^ (hash >>> 16)) & this.groupMask;
+    }
+
+    /**
+     * Counts value in its key group and returns shard that owns the group. Group size is incremented
+     * before owner is checked again, so that group is never moved while value is on its way to shard.
+     */
+    private int acquire(int group) {
+        for (;;) {
+            final int owner = this.owners.get(group);
+            if (owner < 0) {
+                Thread.yield();
+                continue;
+            }
+            this.groupSizes.incrementAndGet(group);
+            if (this.owners.get(group) == owner) {
+                this.shardSizes.incrementAndGet(owner);
+                return owner;
+            }
+            this.groupSizes.decrementAndGet(group);
+        }
+    }
+
+    private void release(int group, int shard) {
+        this.groupSizes.decrementAndGet(group);
+        this.shardSizes.decrementAndGet(shard);
+    }
+
+    private void taken(T value, int shard) {
+        release(groupOfKey(this.key.apply(value)), shard);
+    }
+
+    /**
+     * Moves one empty key group of the busiest shard to home shard. Group is marked as moving first
+     * and moved only if it is still empty, otherwise it stays where it was.
+     */
+    private void steal(int home) {
+        int busiest = home;
+        for (int shard = 0; shard < this.shards.size(); shard++) {
+            if (this.shardSizes.get(shard) > this.shardSizes.get(busiest)) {
+                busiest = shard;
+            }
+        }
+        if (busiest == home || this.shardSizes.get(busiest) < 2) {
+            return;
+        }
+        final int groups = this.groupMask + 1;
+        final int start = this.stealCursor.getAndIncrement();
+        for (int i = 0; i < groups; i++) {
+            final int group = (start + i) & this.groupMask;
+            if (this.owners.get(group) == busiest && this.groupSizes.get(group) == 0
+                && this.owners.compareAndSet(group, busiest, -home - 1)) {
+                this.owners.set(group, this.groupSizes.get(group) == 0 ? home : busiest);
+                return;
+            }
+        }
+    }
+}
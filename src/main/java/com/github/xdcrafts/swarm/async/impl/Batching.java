@@ -0,0 +1,108 @@
+package com.github.xdcrafts.swarm.async.impl;
+
+import com.github.xdcrafts.swarm.transducers.IReducer;
+import com.github.xdcrafts.swarm.transducers.ITransducer;
+import com.github.xdcrafts.swarm.transducers.Reduction;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.LongConsumer;
+import java.util.function.Supplier;
+
+import static com.github.xdcrafts.swarm.transducers.Reduction.reduction;
+
+/**
+ * Batching stage of channel. Unlike partitionAll transducer, all reducers share one pending batch,
+ * so single puts and putAll fill the same batch, and channel is able to emit partial batch once linger
+ * time passes or channel gets closed. Not thread safe, guarded by channel transducer lock.
+ * Values of batch are evaluated when batch is taken.
+ * @param <T> value type
+ */
+final class Batching<T> implements ITransducer<Supplier<List<T>>, Supplier<T>> {
+
+    private final int maxSize;
+    private final Duration linger;
+
+    private List<Supplier<T>> pending;
+    private long generation = 0;
+    private volatile LongConsumer onBatchStart = generation -> { };
+
+    Batching(int maxSize, Duration linger) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("Batch size must be greater then zero");
+        }
+        if (linger.isNegative()) {
+            throw new IllegalArgumentException("Linger time must not be negative");
+        }
+        this.maxSize = maxSize;
+        this.linger = linger;
+        this.pending = new ArrayList<>(maxSize);
+    }
+
+    Duration linger() {
+        return this.linger;
+    }
+
+    /**
+     * Sets listener that gets generation of every batch that gets its first value.
+     */
+    void onBatchStart(LongConsumer listener) {
+        this.onBatchStart = listener;
+    }
+
+    /**
+     * Generation of pending batch, it changes every time batch is emitted.
+     */
+    long generation() {
+        return this.generation;
+    }
+
+    /**
+     * Takes pending batch.
+     * @return supplier of batch values or null if there is no pending values
+     */
+    Supplier<List<T>> drain() {
+        if (this.pending.isEmpty()) {
+            return null;
+        }
+        final List<Supplier<T>> batch = this.pending;
+        this.pending = new ArrayList<>(this.maxSize);
+        this.generation++;
+        return () -> {
+            final List<T> values = new ArrayList<>(batch.size());
+            for (Supplier<T> valueSupplier : batch) {
+                values.add(valueSupplier.get());
+            }
+            return values;
+        };
+    }
+
+    @Override
+    public <R> IReducer<R, Supplier<T>> apply(IReducer<R, Supplier<List<T>>> reducer) {
+        return new IReducer<R, Supplier<T>>() {
+            @Override
+            public Optional<R> init() {
+                return reducer.init();
+            }
+
+            @Override
+            public Reduction<R> complete(Reduction<R> result) {
+                return reducer.complete(result);
+            }
+
+            @Override
+            public Reduction<R> apply(R result, Supplier<T> input) {
+                pending.add(input);
+                if (pending.size() >= maxSize) {
+                    return reducer.apply(result, drain());
+                }
+                if (pending.size() == 1) {
+                    onBatchStart.accept(generation);
+                }
+                return reduction(result);
+            }
+        };
+    }
+}
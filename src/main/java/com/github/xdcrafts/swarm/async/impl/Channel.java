@@ -3,20 +3,43 @@ package com.github.xdcrafts.swarm.async.impl;
 import com.github.xdcrafts.swarm.async.AsyncException;
 import com.github.xdcrafts.swarm.async.IBuffer;
 import com.github.xdcrafts.swarm.async.IChannel;
+import com.github.xdcrafts.swarm.async.ICodec;
+import com.github.xdcrafts.swarm.async.IExpensiveSupplier;
+import com.github.xdcrafts.swarm.async.ISelectableChannel;
 import com.github.xdcrafts.swarm.transducers.IReducer;
 import com.github.xdcrafts.swarm.transducers.ITransducer;
 import com.github.xdcrafts.swarm.transducers.Implementations;
+import com.github.xdcrafts.swarm.transducers.Reduction;
+import com.github.xdcrafts.swarm.util.HashedWheelTimer;
+import com.github.xdcrafts.swarm.util.LangUtils;
 
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentLinkedDeque;
 import java.util.concurrent.Executor;
 import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BooleanSupplier;
 import java.util.function.Supplier;
 
 import static com.github.xdcrafts.swarm.transducers.Reduction.reduction;
+import static com.github.xdcrafts.swarm.util.FutureUtils.TIMEOUT_TIMER;
+import static com.github.xdcrafts.swarm.util.FutureUtils.completeSafely;
 import static com.github.xdcrafts.swarm.util.FutureUtils.within;
 
 /**
@@ -24,21 +47,46 @@ import static com.github.xdcrafts.swarm.util.FutureUtils.within;
  * @param <T> value type
  * @param <I> input value type
  */
-public final class Channel<T, I> implements IChannel<T, I> {
+public final class Channel<T, I> implements ISelectableChannel<T, I> {
 
     /**
-     * Builder API for channel.
+     * Defines where values are evaluated and take requests are completed.
+     */
+    public enum Delivery {
+        /**
+         * Values are evaluated and take requests are completed on channel executor.
+         */
+        EXECUTOR,
+        /**
+         * Values are evaluated and take requests are completed on the thread that performs hand-off,
+         * the taker if value is ready or the putter if taker was parked. Values supplied with
+         * {@link IExpensiveSupplier} are still evaluated on channel executor.
+         */
+        DIRECT
+    }
+
+    /**
+     * Builder API for channel. Every built channel gets its own buffer, unless buffer instance is set up
+     * with {@link ChannelBuilder#withBuffer(IBuffer)}, so the same builder may be used as channel factory.
      * @param <T> value type
      * @param <I> input value type
      */
     public static final class ChannelBuilder<T, I> implements Supplier<Channel<T, I>> {
         private final ITransducer<Supplier<T>, Supplier<I>> transducer;
         private volatile Executor executor = ForkJoinPool.commonPool();
-        private volatile IBuffer<Supplier<T>> buffer = new FixedBuffer<>(1);
+        private volatile Supplier<IBuffer<Supplier<T>>> buffer = () -> new RingBuffer<>(1);
+        /**
+         * Buffer of plain values used in value mode, null if buffer of suppliers was set up explicitly.
+         */
+        private volatile Supplier<IBuffer<T>> valueBuffer = () -> new RingBuffer<>(1);
+        private volatile boolean isValueMode = false;
         private volatile int maxPutRequests = 16384;
         private volatile int maxTakeRequests = 16384;
         private volatile Duration takeDuration = Duration.ofSeconds(1);
         private volatile Duration putDuration = Duration.ofSeconds(1);
+        private volatile String metricsName = null;
+        private volatile Delivery delivery = Delivery.EXECUTOR;
+        private volatile Batching<?> batching = null;
         public ChannelBuilder(ITransducer<Supplier<T>, Supplier<I>> transducer) {
             this.transducer = transducer;
         }
@@ -52,21 +100,81 @@ public final class Channel<T, I> implements IChannel<T, I> {
             return this;
         }
         /**
-         * Setup buffer.
+         * Setup buffer, the same buffer instance is used by every channel built by this builder.
          * @param b buffer
          * @return this builder instance
          */
         public ChannelBuilder<T, I> withBuffer(IBuffer<Supplier<T>> b) {
-            this.buffer = b;
+            this.buffer = () -> b;
+            this.valueBuffer = null;
             return this;
         }
         /**
          * Setup capacity.
-         * @param n size of fixed buffer
+         * @param n size of ring buffer
          * @return this builder instance
          */
         public ChannelBuilder<T, I> withCapacity(int n) {
-            this.buffer = new FixedBuffer<>(n);
+            this.buffer = () -> new RingBuffer<>(n);
+            this.valueBuffer = () -> new RingBuffer<>(n);
+            return this;
+        }
+        /**
+         * Setup sliding buffer, when full the oldest value is evicted, evictions are counted by metrics.
+         * @param n size of sliding buffer
+         * @return this builder instance
+         */
+        public ChannelBuilder<T, I> withSlidingBuffer(int n) {
+            this.buffer = () -> new SlidingBuffer<>(n);
+            this.valueBuffer = () -> new SlidingBuffer<>(n);
+            return this;
+        }
+        /**
+         * Setup dropping buffer, when full the newest value is discarded. Put of discarded value still
+         * completes with the value, discarded values are counted by metrics.
+         * @param n size of dropping buffer
+         * @return this builder instance
+         */
+        public ChannelBuilder<T, I> withDroppingBuffer(int n) {
+            this.buffer = () -> new DroppingBuffer<>(n);
+            this.valueBuffer = () -> new DroppingBuffer<>(n);
+            return this;
+        }
+        /**
+         * Setup priority buffer, values are taken in comparator order, see {@link PriorityBuffer}.
+         * Values are evaluated when they are buffered, so that comparator gets values, not suppliers,
+         * and they are not tracked by latency metrics while buffered.
+         * @param n size of priority buffer
+         * @param comparator priority of values, smaller first
+         * @param aging max time value waits before it is taken regardless of priority, or null to disable aging
+         * @return this builder instance
+         */
+        public ChannelBuilder<T, I> withPriorityBuffer(int n, Comparator<? super T> comparator, Duration aging) {
+            this.buffer = () -> valueBuffer(new PriorityBuffer<>(n, comparator, aging));
+            this.valueBuffer = () -> new PriorityBuffer<>(n, comparator, aging);
+            return this;
+        }
+        /**
+         * Setup spill buffer, values that do not fit into memory are spilled to disk. Values are
+         * evaluated when they are spilled, they are not tracked by latency metrics while on disk.
+         * @param n number of values kept in memory
+         * @param directory directory for segment files
+         * @param codec codec of values
+         * @return this builder instance
+         */
+        public ChannelBuilder<T, I> withSpillBuffer(int n, Path directory, ICodec<T> codec) {
+            final ICodec<Supplier<T>> supplierCodec = new ICodec<Supplier<T>>() {
+                @Override
+                public byte[] encode(Supplier<T> valueSupplier) {
+                    return codec.encode(valueSupplier.get());
+                }
+                @Override
+                public Supplier<T> decode(ByteBuffer bytes) {
+                    return LangUtils.supply(codec.decode(bytes));
+                }
+            };
+            this.buffer = () -> new SpillBuffer<>(n, directory, supplierCodec);
+            this.valueBuffer = () -> new SpillBuffer<>(n, directory, codec);
             return this;
         }
         /**
@@ -105,30 +213,501 @@ public final class Channel<T, I> implements IChannel<T, I> {
             this.putDuration = timeout;
             return this;
         }
+        /**
+         * Setup delivery mode.
+         * @param d delivery mode
+         * @return this builder instance
+         */
+        public ChannelBuilder<T, I> withDelivery(Delivery d) {
+            this.delivery = d;
+            return this;
+        }
+        /**
+         * Enables metrics, they are available via {@link Channel#getMetrics()} and JMX.
+         * Channels built with the same name are registered in JMX with unique suffix, see {@link ChannelMetrics}.
+         * @param name channel name
+         * @return this builder instance
+         */
+        public ChannelBuilder<T, I> withMetrics(String name) {
+            this.metricsName = name;
+            return this;
+        }
+        /**
+         * Setup batching, values are emitted as lists once either batch is full or linger time passes
+         * since first value of batch was put, pending batch is emitted on close and can be taken after it
+         * if buffer has room for it.
+         * Puts that do not fill batch complete at once with empty optional, put that fills batch completes
+         * with put of batch, putAll counts batches it emitted.
+         * All settings except buffer are carried over, buffer has to be set up after this call, it holds batches.
+         * @param maxSize max number of values in batch
+         * @param linger max time that value waits for batch to fill
+         * @return new builder of batches
+         */
+        public ChannelBuilder<List<T>, I> withBatching(int maxSize, Duration linger) {
+            if (this.batching != null) {
+                throw new IllegalStateException("Batching is already set up");
+            }
+            final Batching<T> b = new Batching<>(maxSize, linger);
+            final ChannelBuilder<List<T>, I> builder = new ChannelBuilder<>(this.transducer.compose(b));
+            builder.executor = this.executor;
+            builder.maxPutRequests = this.maxPutRequests;
+            builder.maxTakeRequests = this.maxTakeRequests;
+            builder.takeDuration = this.takeDuration;
+            builder.putDuration = this.putDuration;
+            builder.metricsName = this.metricsName;
+            builder.delivery = this.delivery;
+            builder.isValueMode = this.isValueMode;
+            builder.batching = b;
+            return builder;
+        }
         @Override
         public Channel<T, I> get() {
             return new Channel<>(
                 this.executor,
-                this.buffer,
+                this.isValueMode && this.valueBuffer != null ? valueBuffer(this.valueBuffer.get()) : this.buffer.get(),
                 this.transducer,
                 this.maxPutRequests,
                 this.maxTakeRequests,
                 this.takeDuration,
-                this.putDuration
+                this.putDuration,
+                this.metricsName == null ? null : new ChannelMetrics(this.metricsName),
+                this.delivery,
+                this.batching,
+                this.isValueMode && this.valueBuffer != null
             );
         }
     }
 
     /**
-     * Container for put request data.
+     * Min number of released requests left in queue that triggers purge.
+     */
+    private static final int PURGE_THRESHOLD = 64;
+
+    /**
+     * Parked request that holds one slot of request queue.
+     */
+    private abstract static class Request {
+        private static final AtomicIntegerFieldUpdater<Request> RELEASED =
+            AtomicIntegerFieldUpdater.newUpdater(Request.class, "released");
+        private volatile int released = 0;
+        /**
+         * Marks slot of this request as released.
+         * @return true only for the first call
+         */
+        boolean release() {
+            return RELEASED.compareAndSet(this, 0, 1);
+        }
+        boolean isReleased() {
+            return this.released != 0;
+        }
+    }
+
+    /**
+     * Parked put request.
+     */
+    private abstract class PutRequest extends Request {
+        abstract boolean isDone();
+        /**
+         * Moves values of this request to buffer and completes it.
+         * @return false if buffer got full before all values were moved
+         */
+        abstract boolean fulfil();
+        /**
+         * Completes this request with error of buffer that failed to take its value.
+         */
+        abstract void fail(RuntimeException error);
+    }
+
+    /**
+     * Put request for single value.
      */
-    private final class PutRequest {
+    private final class SinglePutRequest extends PutRequest {
         final Supplier<T> supplier;
         final CompletableFuture<Optional<Supplier<T>>> requestFuture;
-        PutRequest(Supplier<T> supplier, CompletableFuture<Optional<Supplier<T>>> requestFuture) {
+        SinglePutRequest(Supplier<T> supplier, CompletableFuture<Optional<Supplier<T>>> requestFuture) {
             this.supplier = supplier;
             this.requestFuture = requestFuture;
         }
+        @Override
+        boolean isDone() {
+            return this.requestFuture.isDone();
+        }
+        @Override
+        boolean fulfil() {
+            if (!addToBuffer(this.supplier)) {
+                return false;
+            }
+            this.requestFuture.complete(Optional.of(this.supplier));
+            return true;
+        }
+        @Override
+        void fail(RuntimeException error) {
+            this.requestFuture.completeExceptionally(error);
+        }
+    }
+
+    /**
+     * Put request for remainder of batch that did not fit into buffer. Every value is added under claim
+     * of request state and put timeout closes request under the same claim before it fails request,
+     * so no value is added to buffer once putAll is failed with timeout.
+     */
+    private final class BatchPutRequest extends PutRequest {
+        static final int OPEN = 0;
+        static final int FILLING = 1;
+        static final int CLOSED = 2;
+        final List<Supplier<T>> suppliers;
+        final AtomicInteger state = new AtomicInteger(OPEN);
+        final CompletableFuture<Integer> requestFuture = new CompletableFuture<>();
+        int next;
+        BatchPutRequest(List<Supplier<T>> suppliers, int next) {
+            this.suppliers = suppliers;
+            this.next = next;
+            final HashedWheelTimer.Timeout timeout = TIMEOUT_TIMER.schedule(this::expire, Channel.this.putTimeout);
+            this.requestFuture.whenComplete((res, exc) -> timeout.cancel());
+        }
+        @Override
+        boolean isDone() {
+            return this.requestFuture.isDone();
+        }
+        @Override
+        boolean fulfil() {
+            while (this.next < this.suppliers.size()) {
+                if (this.requestFuture.isDone() || !this.state.compareAndSet(OPEN, FILLING)) {
+                    return true;
+                }
+                final boolean isAdded = addToBuffer(this.suppliers.get(this.next));
+                if (isAdded) {
+                    this.next++;
+                }
+                this.state.set(OPEN);
+                if (!isAdded) {
+                    return false;
+                }
+            }
+            this.requestFuture.complete(this.suppliers.size());
+            return true;
+        }
+        @Override
+        void fail(RuntimeException error) {
+            // Value that failed was being added under FILLING state
+            this.state.compareAndSet(FILLING, OPEN);
+            close();
+            this.requestFuture.completeExceptionally(error);
+        }
+        void expire() {
+            close();
+            if (this.requestFuture.completeExceptionally(new TimeoutException("Timeout after " + Channel.this.putTimeout))
+                && Channel.this.metrics != null) {
+                Channel.this.metrics.onPutTimeout();
+            }
+        }
+        /**
+         * Closes request, waits for value that is being added, if any.
+         */
+        void close() {
+            int current;
+            while ((current = this.state.get()) != CLOSED && !this.state.compareAndSet(OPEN, CLOSED)) {
+                if (current == FILLING) {
+                    Thread.yield();
+                }
+            }
+        }
+    }
+
+    /**
+     * Parked take request.
+     */
+    private abstract class TakeRequest extends Request {
+        abstract boolean isDone();
+        /**
+         * Takes values from buffer and completes this request.
+         * @return false if buffer had no values for this request
+         */
+        abstract boolean fulfil();
+        /**
+         * Completes this request with error of buffer that failed to give its value.
+         */
+        abstract void fail(RuntimeException error);
+    }
+
+    /**
+     * Take request for single value.
+     */
+    private final class SingleTakeRequest extends TakeRequest {
+        final CompletableFuture<T> requestFuture;
+        SingleTakeRequest(CompletableFuture<T> requestFuture) {
+            this.requestFuture = requestFuture;
+        }
+        @Override
+        boolean isDone() {
+            return this.requestFuture.isDone();
+        }
+        @Override
+        boolean fulfil() {
+            final Supplier<T> valueSupplier = pollFromBuffer();
+            if (valueSupplier == null) {
+                return false;
+            }
+            deliver(valueSupplier, this.requestFuture);
+            return true;
+        }
+        @Override
+        void fail(RuntimeException error) {
+            this.requestFuture.completeExceptionally(error);
+        }
+    }
+
+    /**
+     * Take request for up to max values.
+     */
+    private final class BatchTakeRequest extends TakeRequest {
+        final int max;
+        final CompletableFuture<List<T>> requestFuture;
+        BatchTakeRequest(int max, CompletableFuture<List<T>> requestFuture) {
+            this.max = max;
+            this.requestFuture = requestFuture;
+        }
+        @Override
+        boolean isDone() {
+            return this.requestFuture.isDone();
+        }
+        @Override
+        boolean fulfil() {
+            final List<Supplier<T>> valueSuppliers = pollBatch(this.max);
+            if (valueSuppliers.isEmpty()) {
+                return false;
+            }
+            deliverBatch(valueSuppliers, this.requestFuture);
+            return true;
+        }
+        @Override
+        void fail(RuntimeException error) {
+            this.requestFuture.completeExceptionally(error);
+        }
+    }
+
+    /**
+     * Take request that takes value only if claim succeeds, see {@link ISelectableChannel#take(BooleanSupplier)}.
+     */
+    private final class ClaimedTakeRequest extends TakeRequest {
+        final BooleanSupplier claim;
+        final CompletableFuture<T> requestFuture;
+        ClaimedTakeRequest(BooleanSupplier claim, CompletableFuture<T> requestFuture) {
+            this.claim = claim;
+            this.requestFuture = requestFuture;
+        }
+        @Override
+        boolean isDone() {
+            return this.requestFuture.isDone();
+        }
+        @Override
+        boolean fulfil() {
+            if (Channel.this.buffer.isEmpty()) {
+                return false;
+            }
+            if (!this.claim.getAsBoolean()) {
+                this.requestFuture.cancel(false);
+                return true;
+            }
+            final Supplier<T> valueSupplier = pollFromBuffer();
+            if (valueSupplier == null) {
+                return false;
+            }
+            deliver(valueSupplier, this.requestFuture);
+            return true;
+        }
+        @Override
+        void fail(RuntimeException error) {
+            this.requestFuture.completeExceptionally(error);
+        }
+    }
+
+    /**
+     * Put request that puts values only if claim succeeds, see {@link ISelectableChannel#put(Supplier, BooleanSupplier)}.
+     */
+    private final class ClaimedPutRequest extends PutRequest {
+        final List<Supplier<T>> suppliers;
+        final BooleanSupplier claim;
+        final CompletableFuture<Optional<Supplier<T>>> requestFuture;
+        boolean isClaimed = false;
+        int next = 0;
+        ClaimedPutRequest(
+            List<Supplier<T>> suppliers, BooleanSupplier claim, CompletableFuture<Optional<Supplier<T>>> requestFuture
+        ) {
+            this.suppliers = suppliers;
+            this.claim = claim;
+            this.requestFuture = requestFuture;
+        }
+        @Override
+        boolean isDone() {
+            return this.requestFuture.isDone();
+        }
+        @Override
+        boolean fulfil() {
+            if (!this.isClaimed) {
+                if (!this.suppliers.isEmpty() && Channel.this.buffer.isFull()) {
+                    return false;
+                }
+                if (!this.claim.getAsBoolean()) {
+                    this.requestFuture.cancel(false);
+                    return true;
+                }
+                this.isClaimed = true;
+            }
+            while (this.next < this.suppliers.size()) {
+                if (!addToBuffer(this.suppliers.get(this.next))) {
+                    return false;
+                }
+                this.next++;
+            }
+            this.requestFuture.complete(
+                this.suppliers.isEmpty()
+                    ? Optional.empty() : Optional.of(this.suppliers.get(this.suppliers.size() - 1))
+            );
+            return true;
+        }
+        @Override
+        void fail(RuntimeException error) {
+            this.requestFuture.completeExceptionally(error);
+        }
+    }
+
+    /**
+     * Parking state of thread blocked in takeBlocking or putBlocking. Dispatch loop claims waiter before
+     * touching buffer and either fulfils it or releases it back, waiter may cancel itself only while
+     * it is not claimed, so value is never lost between timed out thread and buffer.
+     */
+    private static final class Waiter {
+        static final int WAITING = 0;
+        static final int CLAIMED = 1;
+        static final int FULFILLED = 2;
+        static final int CANCELLED = 3;
+        final Thread thread = Thread.currentThread();
+        final AtomicInteger state = new AtomicInteger(WAITING);
+        boolean isDone() {
+            return this.state.get() >= FULFILLED;
+        }
+        boolean claim() {
+            return this.state.compareAndSet(WAITING, CLAIMED);
+        }
+        boolean isClaimed() {
+            return this.state.get() == CLAIMED;
+        }
+        void release() {
+            this.state.set(WAITING);
+        }
+        void fulfil() {
+            this.state.set(FULFILLED);
+            LockSupport.unpark(this.thread);
+        }
+        /**
+         * Blocks current thread till waiter is fulfilled.
+         * @return false if deadline passed
+         */
+        boolean await(long deadline) throws InterruptedException {
+            int spins = Parking.spins();
+            boolean interrupted = false;
+            for (;;) {
+                final int current = this.state.get();
+                if (current == FULFILLED) {
+                    if (interrupted) {
+                        Thread.currentThread().interrupt();
+                    }
+                    return true;
+                }
+                interrupted |= Thread.interrupted();
+                final long remaining = deadline - System.nanoTime();
+                if (interrupted || remaining <= 0) {
+                    if (current == WAITING && this.state.compareAndSet(WAITING, CANCELLED)) {
+                        if (interrupted) {
+                            throw new InterruptedException();
+                        }
+                        return false;
+                    }
+                    Parking.onSpinWait();
+                } else if (spins > 0) {
+                    spins--;
+                    Parking.onSpinWait();
+                } else {
+                    LockSupport.parkNanos(this, remaining);
+                }
+            }
+        }
+    }
+
+    /**
+     * Take request of blocked thread, value is evaluated by that thread.
+     */
+    private final class BlockingTakeRequest extends TakeRequest {
+        final Waiter waiter = new Waiter();
+        Supplier<T> valueSupplier;
+        RuntimeException error;
+        @Override
+        boolean isDone() {
+            return this.waiter.isDone();
+        }
+        @Override
+        boolean fulfil() {
+            if (Channel.this.buffer.isEmpty()) {
+                return false;
+            }
+            if (!this.waiter.claim()) {
+                return true;
+            }
+            final Supplier<T> polled = pollFromBuffer();
+            if (polled == null) {
+                this.waiter.release();
+                return false;
+            }
+            this.valueSupplier = polled;
+            this.waiter.fulfil();
+            return true;
+        }
+        @Override
+        void fail(RuntimeException e) {
+            if (this.waiter.isClaimed() || this.waiter.claim()) {
+                this.error = e;
+                this.waiter.fulfil();
+            }
+        }
+    }
+
+    /**
+     * Put request of blocked thread.
+     */
+    private final class BlockingPutRequest extends PutRequest {
+        final Waiter waiter = new Waiter();
+        final Supplier<T> supplier;
+        RuntimeException error;
+        BlockingPutRequest(Supplier<T> supplier) {
+            this.supplier = supplier;
+        }
+        @Override
+        boolean isDone() {
+            return this.waiter.isDone();
+        }
+        @Override
+        boolean fulfil() {
+            if (Channel.this.buffer.isFull()) {
+                return false;
+            }
+            if (!this.waiter.claim()) {
+                return true;
+            }
+            if (!addToBuffer(this.supplier)) {
+                this.waiter.release();
+                return false;
+            }
+            this.waiter.fulfil();
+            return true;
+        }
+        @Override
+        void fail(RuntimeException e) {
+            if (this.waiter.isClaimed() || this.waiter.claim()) {
+                this.error = e;
+                this.waiter.fulfil();
+            }
+        }
     }
 
     /**
@@ -151,34 +730,206 @@ public final class Channel<T, I> implements IChannel<T, I> {
         return new ChannelBuilder<>(transducer);
     }
 
-    private final IReducer<CompletableFuture<Optional<Supplier<T>>>, Supplier<I>> transducedReducer;
-
-    private final Executor executor;
-
-    private final IBuffer<Supplier<T>> buffer;
-
-    private final ConcurrentLinkedDeque<PutRequest> putRequests = new ConcurrentLinkedDeque<>();
-    private final ConcurrentLinkedDeque<CompletableFuture<T>> takeRequests = new ConcurrentLinkedDeque<>();
+    /**
+     * Creates new channel of serialized payloads that are buffered off heap, see {@link PayloadBuffer}.
+     * Payloads are copied when they are buffered, so put payload may be reused once put completes,
+     * taken payloads are read-only slices.
+     * @param capacity buffer capacity in bytes
+     * @return new channel builder of payloads
+     */
+    public static ChannelBuilder<ByteBuffer, ByteBuffer> payloadChannel(long capacity) {
+        final ChannelBuilder<ByteBuffer, ByteBuffer> builder = channel();
+        builder.buffer = () -> valueBuffer(new PayloadBuffer(capacity));
+        return builder;
+    }
 
-    private final int maxPutRequests;
-    private final int maxTakeRequests;
+    /**
+     * Creates new channel of serialized payloads that are buffered off heap in regions of given size,
+     * see {@link #payloadChannel(long)}.
+     * @param capacity buffer capacity in bytes
+     * @param regionSize size of off-heap region, e.g. capacity of buffer times expected payload size
+     * @return new channel builder of payloads
+     */
+    public static ChannelBuilder<ByteBuffer, ByteBuffer> payloadChannel(long capacity, int regionSize) {
+        final ChannelBuilder<ByteBuffer, ByteBuffer> builder = channel();
+        builder.buffer = () -> valueBuffer(new PayloadBuffer(capacity, regionSize));
+        return builder;
+    }
 
-    private final Duration takeTimeout;
-    private final Duration putTimeout;
+    /**
+     * Creates new value mode channel instance, see {@link Channel#valueChannel(ITransducer)}.
+     * @param <T> channel values type
+     * @return new channel builder from T to T
+     */
+    public static <T> ChannelBuilder<T, T> valueChannel() {
+        return valueChannel(Implementations.id());
+    }
 
-    private final AtomicInteger currentPutRequestsCount = new AtomicInteger();
-    private final AtomicInteger currentTakeRequestsCount = new AtomicInteger();
+    /**
+     * Creates new value mode channel instance. Values are evaluated eagerly on put, supplier that throws fails that put only,
+     * go through plain transducer and are buffered as they are, so buffered value costs no supplier and transducer steps do not wrap
+     * values into suppliers. Suppliers stay lazy only if buffer of suppliers is set up explicitly with
+     * {@link ChannelBuilder#withBuffer(IBuffer)}. Latency metrics are not recorded for values buffered as they are.
+     * @param transducer transducer of plain values
+     * @param <T> channel result type
+     * @param <I> channel input type
+     * @return new channel builder from I to T
+     */
+    public static <T, I> ChannelBuilder<T, I> valueChannel(ITransducer<T, I> transducer) {
+        final ChannelBuilder<T, I> builder = new ChannelBuilder<>(lift(transducer));
+        builder.isValueMode = true;
+        return builder;
+    }
 
-    private volatile boolean isClosed = false;
+    /**
+     * Runs plain transducer over suppliers, input is evaluated once before the first step and result
+     * is wrapped into supplier after the last one. Identity stays identity, so channel takes no transducer lock.
+     */
+    @SuppressWarnings("unchecked")
+    private static <T, I> ITransducer<Supplier<T>, Supplier<I>> lift(ITransducer<T, I> transducer) {
+        if ((Object) transducer == Implementations.id()) {
+            return (ITransducer<Supplier<T>, Supplier<I>>) (Object) transducer;
+        }
+        return new ITransducer<Supplier<T>, Supplier<I>>() {
+            @Override
+            public <R> IReducer<R, Supplier<I>> apply(IReducer<R, Supplier<T>> reducer) {
+                final IReducer<R, I> plain = transducer.apply(new IReducer<R, T>() {
+                        @Override
+                        public Optional<R> init() {
+                            return reducer.init();
+                        }
+                        @Override
+                        public Reduction<R> complete(Reduction<R> result) {
+                            return reducer.complete(result);
+                        }
+                        @Override
+                        public Reduction<R> apply(R result, T value) {
+                            return reducer.apply(result, LangUtils.supply(value));
+                        }
+                    });
+                return new IReducer<R, Supplier<I>>() {
+                    @Override
+                    public Optional<R> init() {
+                        return plain.init();
+                    }
+                    @Override
+                    public Reduction<R> complete(Reduction<R> result) {
+                        return plain.complete(result);
+                    }
+                    @Override
+                    public Reduction<R> apply(R result, Supplier<I> valueSupplier) {
+                        return plain.apply(result, valueSupplier.get());
+                    }
+                };
+            }
+        };
+    }
 
-    private Channel(
-        Executor executor,
+    /**
+     * Adapts buffer of plain values to buffer of suppliers, suppliers are evaluated when they are buffered.
+     */
+    private static <T> IBuffer<Supplier<T>> valueBuffer(IBuffer<T> values) {
+        return new IBuffer<Supplier<T>>() {
+            @Override
+            public boolean add(Supplier<T> valueSupplier) {
+                return !values.isFull() && values.add(valueSupplier.get());
+            }
+            @Override
+            public Supplier<T> poll() {
+                final T value = values.poll();
+                return value == null ? null : LangUtils.supply(value);
+            }
+            @Override
+            public Optional<Supplier<T>> remove() {
+                return Optional.ofNullable(poll());
+            }
+            @Override
+            public boolean isFull() {
+                return values.isFull();
+            }
+            @Override
+            public boolean isEmpty() {
+                return values.isEmpty();
+            }
+            @Override
+            public int size() {
+                return values.size();
+            }
+            @Override
+            public int remainingCapacity() {
+                return values.remainingCapacity();
+            }
+            @Override
+            public long droppedCount() {
+                return values.droppedCount();
+            }
+        };
+    }
+
+    /**
+     * The only reducer chain of channel transducer, every put path collects values that input expands into
+     * with it, so that stateful transducers keep one state per channel.
+     */
+    private final IReducer<List<Supplier<T>>, Supplier<I>> batchReducer;
+
+    /**
+     * Stateful transducers (take, dedupe, partitionAll etc) are not thread safe, so transducer step
+     * is serialized unless channel uses identity transducer, in that case lock is null.
+     * Buffer and request queues are lock-free anyway. Not a monitor, so that virtual threads are not pinned.
+     */
+    private final Lock transducerLock;
+
+    private final Executor executor;
+
+    private final IBuffer<Supplier<T>> buffer;
+
+    private final ConcurrentLinkedDeque<PutRequest> putRequests = new ConcurrentLinkedDeque<>();
+    private final ConcurrentLinkedDeque<TakeRequest> takeRequests = new ConcurrentLinkedDeque<>();
+
+    private final int maxPutRequests;
+    private final int maxTakeRequests;
+
+    private final Duration takeTimeout;
+    private final Duration putTimeout;
+
+    private final AtomicInteger currentPutRequestsCount = new AtomicInteger();
+    private final AtomicInteger currentTakeRequestsCount = new AtomicInteger();
+
+    /**
+     * Number of requests that already released their slots, but are still in queues.
+     * They are dropped by dispatch loop, either from queue head or all at once by purge.
+     */
+    private final AtomicInteger releasedPutRequestsCount = new AtomicInteger();
+    private final AtomicInteger releasedTakeRequestsCount = new AtomicInteger();
+
+    /**
+     * Work-in-progress counter of dispatch loop. Only one thread at a time matches parked requests
+     * with buffer, other threads just signal that there is more work and leave.
+     */
+    private final AtomicInteger dispatchWip = new AtomicInteger();
+
+    private final ChannelMetrics metrics;
+
+    private final boolean isDirect;
+
+    private final Batching<?> batching;
+
+    private final boolean isValueMode;
+
+    private volatile boolean isClosed = false;
+
+    private Channel(
+        Executor executor,
         IBuffer<Supplier<T>> buffer,
         ITransducer<Supplier<T>, Supplier<I>> transducer,
         int maxPutRequests,
         int maxTakeRequests,
         Duration takeTimeout,
-        Duration putTimeout
+        Duration putTimeout,
+        ChannelMetrics metrics,
+        Delivery delivery,
+        Batching<?> batching,
+        boolean isValueMode
     ) {
         this.executor = executor;
         this.buffer = buffer;
@@ -186,56 +937,407 @@ public final class Channel<T, I> implements IChannel<T, I> {
         this.maxTakeRequests = maxTakeRequests;
         this.takeTimeout = takeTimeout;
         this.putTimeout = putTimeout;
-        this.transducedReducer = transducer.apply((resultFuture, inputSupplier) -> {
-                final CompletableFuture<Optional<Supplier<T>>> putRequest = within(
-                    new CompletableFuture<>(), this.putTimeout);
-                if (this.buffer.isFull()) {
-                    if (this.currentPutRequestsCount.get() < this.maxPutRequests) {
-                        this.currentPutRequestsCount.incrementAndGet();
-                        this.putRequests.offer(new PutRequest(inputSupplier, putRequest));
-                    } else {
-                        putRequest.completeExceptionally(new AsyncException("Request queue is full."));
+        this.metrics = metrics;
+        this.isDirect = delivery == Delivery.DIRECT;
+        if (metrics != null) {
+            metrics.bind(
+                buffer::size, buffer::droppedCount, this.currentPutRequestsCount::get, this.currentTakeRequestsCount::get
+            );
+            metrics.register();
+        }
+        this.transducerLock = (Object) transducer == Implementations.id() ? null : new ReentrantLock();
+        this.batchReducer = transducer.apply((result, inputSupplier) -> {
+                result.add(inputSupplier);
+                return reduction(result);
+            });
+        this.batching = batching;
+        this.isValueMode = isValueMode;
+        if (batching != null) {
+            final Duration linger = batching.linger();
+            batching.onBatchStart(generation -> TIMEOUT_TIMER.schedule(
+                () -> this.executor.execute(() -> flushBatch(generation)), linger
+            ));
+        }
+    }
+
+    /**
+     * Puts value that already went through transducer.
+     */
+    private CompletableFuture<Optional<Supplier<T>>> putTransduced(Supplier<T> inputSupplier) {
+        if (offerTransduced(inputSupplier)) {
+            // Accepted right away, so there is nothing to time out
+            return CompletableFuture.completedFuture(Optional.of(inputSupplier));
+        }
+        final CompletableFuture<Optional<Supplier<T>>> putRequest = putRequest();
+        if (acquire(this.currentPutRequestsCount, this.maxPutRequests)) {
+            parkPut(new SinglePutRequest(inputSupplier, putRequest), putRequest);
+        } else {
+            rejectPut(putRequest);
+        }
+        return putRequest;
+    }
+
+    /**
+     * Emits pending batch if it is still the same batch that linger timer was scheduled for,
+     * or any pending batch if generation is null. Channel with batching always has transducer lock,
+     * composition with batching is never identity.
+     */
+    @SuppressWarnings("unchecked")
+    private void flushBatch(Long generation) {
+        this.transducerLock.lock();
+        try {
+            if (!this.isClosed && (generation == null || generation == this.batching.generation())) {
+                final Supplier<T> batch = (Supplier<T>) (Supplier<?>) this.batching.drain();
+                if (batch != null) {
+                    putTransduced(batch);
+                }
+            }
+        } finally {
+            this.transducerLock.unlock();
+        }
+    }
+
+    /**
+     * Increments counter if it is less then max.
+     */
+    private static boolean acquire(AtomicInteger counter, int max) {
+        for (;;) {
+            final int current = counter.get();
+            if (current >= max) {
+                return false;
+            }
+            if (counter.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Parks put request, its slot is released as soon as request future completes.
+     */
+    private void parkPut(PutRequest request, CompletableFuture<?> requestFuture) {
+        requestFuture.whenComplete((res, exc) -> releasePut(request));
+        this.putRequests.offer(request);
+        dispatch();
+    }
+
+    /**
+     * Parks take request, its slot is released as soon as request future completes.
+     */
+    private void parkTake(TakeRequest request, CompletableFuture<?> requestFuture) {
+        requestFuture.whenComplete((res, exc) -> releaseTake(request));
+        this.takeRequests.offer(request);
+        dispatch();
+    }
+
+    private void releasePut(PutRequest request) {
+        if (request.release()) {
+            this.currentPutRequestsCount.decrementAndGet();
+            if (this.releasedPutRequestsCount.incrementAndGet() > PURGE_THRESHOLD) {
+                dispatch();
+            }
+        }
+    }
+
+    private void releaseTake(TakeRequest request) {
+        if (request.release()) {
+            this.currentTakeRequestsCount.decrementAndGet();
+            if (this.releasedTakeRequestsCount.incrementAndGet() > PURGE_THRESHOLD) {
+                dispatch();
+            }
+        }
+    }
+
+    /**
+     * Removes released requests from queue if there are more of them then live ones,
+     * so that purge costs O(1) per released request. Called only from dispatch loop.
+     */
+    private static void purge(Deque<? extends Request> requests, AtomicInteger released, AtomicInteger current) {
+        if (released.get() <= Math.max(PURGE_THRESHOLD, current.get())) {
+            return;
+        }
+        final Iterator<? extends Request> iterator = requests.iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().isReleased()) {
+                iterator.remove();
+                released.decrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Adds value to buffer, wraps it to track latency if metrics are enabled.
+     */
+    private boolean addToBuffer(Supplier<T> valueSupplier) {
+        if (this.metrics == null) {
+            return this.buffer.add(valueSupplier);
+        }
+        if (this.buffer.add(this.metrics.timed(valueSupplier))) {
+            this.metrics.onPut();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Takes value from buffer, records its latency if metrics are enabled.
+     */
+    private Supplier<T> pollFromBuffer() {
+        final Supplier<T> valueSupplier = this.buffer.poll();
+        return this.metrics == null || valueSupplier == null ? valueSupplier : this.metrics.onTake(valueSupplier);
+    }
+
+    private <V> CompletableFuture<V> takeRequest() {
+        final CompletableFuture<V> takeRequest = within(new CompletableFuture<>(), this.takeTimeout);
+        if (this.metrics != null) {
+            takeRequest.whenComplete((res, exc) -> {
+                    if (exc instanceof TimeoutException) {
+                        this.metrics.onTakeTimeout();
                     }
+                });
+        }
+        return takeRequest;
+    }
+
+    private <V> CompletableFuture<V> putRequest() {
+        final CompletableFuture<V> putRequest = within(new CompletableFuture<>(), this.putTimeout);
+        if (this.metrics != null) {
+            putRequest.whenComplete((res, exc) -> {
+                    if (exc instanceof TimeoutException) {
+                        this.metrics.onPutTimeout();
+                    }
+                });
+        }
+        return putRequest;
+    }
+
+    private AsyncException takeRejected() {
+        if (this.metrics != null) {
+            this.metrics.onTakeRejection();
+        }
+        return new AsyncException("Take queue is full.");
+    }
+
+    private AsyncException putRejected() {
+        if (this.metrics != null) {
+            this.metrics.onPutRejection();
+        }
+        return new AsyncException("Request queue is full.");
+    }
+
+    private void rejectTake(CompletableFuture<?> takeRequest) {
+        takeRequest.completeExceptionally(takeRejected());
+    }
+
+    private void rejectPut(CompletableFuture<?> putRequest) {
+        putRequest.completeExceptionally(putRejected());
+    }
+
+    /**
+     * Completes take request with value evaluated on channel executor.
+     */
+    private void deliver(Supplier<T> valueSupplier, CompletableFuture<T> takeRequest) {
+        if (isDirect(valueSupplier)) {
+            completeSafely(takeRequest, valueSupplier);
+            return;
+        }
+        CompletableFuture.supplyAsync(valueSupplier, this.executor).whenComplete((res, exc) -> {
+                if (res != null) {
+                    takeRequest.complete(res);
                 } else {
-                    final boolean isAdded = this.buffer.add(inputSupplier);
-                    if (isAdded) {
-                        putRequest.complete(Optional.of(inputSupplier));
-                        CompletableFuture<T> takeRequest = this.takeRequests.poll();
-                        while (takeRequest != null && takeRequest.isDone()) {
-                            takeRequest = this.takeRequests.poll();
+                    takeRequest.completeExceptionally(exc);
+                }
+            });
+    }
+
+    /**
+     * Completes take request with values evaluated on channel executor in one go.
+     */
+    private void deliverBatch(List<Supplier<T>> valueSuppliers, CompletableFuture<List<T>> takeRequest) {
+        final Supplier<List<T>> values = () -> {
+            final List<T> result = new ArrayList<>(valueSuppliers.size());
+            for (Supplier<T> valueSupplier : valueSuppliers) {
+                result.add(valueSupplier.get());
+            }
+            return result;
+        };
+        if (this.isDirect && valueSuppliers.stream().noneMatch(IExpensiveSupplier.class::isInstance)) {
+            completeSafely(takeRequest, values);
+            return;
+        }
+        CompletableFuture.supplyAsync(values, this.executor).whenComplete((res, exc) -> {
+                if (res != null) {
+                    takeRequest.complete(res);
+                } else {
+                    takeRequest.completeExceptionally(exc);
+                }
+            });
+    }
+
+    /**
+     * Should value be evaluated on the current thread.
+     */
+    private boolean isDirect(Supplier<T> valueSupplier) {
+        return this.isDirect && !(valueSupplier instanceof IExpensiveSupplier);
+    }
+
+    /**
+     * Takes up to max values from buffer.
+     */
+    private List<Supplier<T>> pollBatch(int max) {
+        final List<Supplier<T>> valueSuppliers = new ArrayList<>(Math.min(max, Math.max(1, this.buffer.size())));
+        Supplier<T> valueSupplier;
+        while (valueSuppliers.size() < max && (valueSupplier = pollFromBuffer()) != null) {
+            valueSuppliers.add(valueSupplier);
+        }
+        return valueSuppliers;
+    }
+
+    /**
+     * Moves parked puts into buffer while it has free space and hands buffered values
+     * to parked takes. Any thread that changes state calls this, but only one of them runs
+     * the loop, the rest increment work counter so that the running one makes another pass.
+     */
+    private void dispatch() {
+        if (this.dispatchWip.getAndIncrement() != 0) {
+            return;
+        }
+        int missed = 1;
+        try {
+            do {
+                purge(this.putRequests, this.releasedPutRequestsCount, this.currentPutRequestsCount);
+                purge(this.takeRequests, this.releasedTakeRequestsCount, this.currentTakeRequestsCount);
+                if (this.isClosed) {
+                    rejectParkedPuts();
+                }
+                boolean progress = true;
+                while (progress) {
+                    progress = false;
+                    PutRequest putRequest;
+                    while ((putRequest = this.putRequests.peek()) != null) {
+                        if (!putRequest.isDone()) {
+                            if (!fulfilPut(putRequest)) {
+                                break;
+                            }
+                            progress = true;
                         }
-                        Optional.ofNullable(takeRequest).ifPresent(request -> {
-                                final Optional<Supplier<T>> valueFromBuffer = this.buffer.remove();
-                                if (valueFromBuffer.isPresent()) {
-                                    CompletableFuture.supplyAsync(valueFromBuffer.get(), this.executor)
-                                            .whenComplete((res, exc) -> {
-                                                    if (res != null) {
-                                                        request.complete(res);
-                                                    } else {
-                                                        request.completeExceptionally(exc);
-                                                    }
-                                                });
-                                    this.currentTakeRequestsCount.decrementAndGet();
-                                } else {
-                                    this.takeRequests.addFirst(request);
-                                }
-                            });
-                    } else {
-                        if (this.currentPutRequestsCount.get() < this.maxPutRequests) {
-                            this.currentPutRequestsCount.incrementAndGet();
-                            this.putRequests.offer(new PutRequest(inputSupplier, putRequest));
+                        this.putRequests.poll();
+                        if (putRequest.release()) {
+                            this.currentPutRequestsCount.decrementAndGet();
                         } else {
-                            putRequest.completeExceptionally(new AsyncException("Request queue is full."));
+                            this.releasedPutRequestsCount.decrementAndGet();
+                        }
+                    }
+                    TakeRequest takeRequest;
+                    while ((takeRequest = this.takeRequests.peek()) != null) {
+                        if (!takeRequest.isDone()) {
+                            if (!fulfilTake(takeRequest)) {
+                                break;
+                            }
+                            progress = true;
+                        }
+                        this.takeRequests.poll();
+                        if (takeRequest.release()) {
+                            this.currentTakeRequestsCount.decrementAndGet();
+                        } else {
+                            this.releasedTakeRequestsCount.decrementAndGet();
                         }
                     }
                 }
-                return reduction(putRequest);
-            });
+                if (this.isClosed && this.buffer.isEmpty()) {
+                    rejectParkedTakes();
+                }
+                missed = this.dispatchWip.addAndGet(-missed);
+            } while (missed != 0);
+        } finally {
+            if (missed != 0) {
+                // Loop is left by error, so that the next caller is able to run it
+                this.dispatchWip.set(0);
+            }
+        }
+    }
+
+    /**
+     * Fails puts that are parked on closed channel, called by dispatch loop only.
+     */
+    private void rejectParkedPuts() {
+        PutRequest putRequest;
+        while ((putRequest = this.putRequests.poll()) != null) {
+            if (!putRequest.isDone()) {
+                putRequest.fail(new AsyncException("Channel is closed."));
+            }
+            if (putRequest.release()) {
+                this.currentPutRequestsCount.decrementAndGet();
+            } else {
+                this.releasedPutRequestsCount.decrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Fails takes that are parked on closed channel once its buffer is drained, called by dispatch loop only.
+     */
+    private void rejectParkedTakes() {
+        TakeRequest takeRequest;
+        while ((takeRequest = this.takeRequests.poll()) != null) {
+            if (!takeRequest.isDone()) {
+                takeRequest.fail(new AsyncException("Channel is closed."));
+            }
+            if (takeRequest.release()) {
+                this.currentTakeRequestsCount.decrementAndGet();
+            } else {
+                this.releasedTakeRequestsCount.decrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Fulfils parked put, put whose value buffer fails to add is completed with the error and leaves queue.
+     */
+    private boolean fulfilPut(PutRequest request) {
+        try {
+            return request.fulfil();
+        } catch (RuntimeException e) {
+            request.fail(e);
+            return true;
+        }
+    }
+
+    /**
+     * Fulfils parked take, take whose value buffer fails to give is completed with the error and leaves queue.
+     */
+    private boolean fulfilTake(TakeRequest request) {
+        try {
+            return request.fulfil();
+        } catch (RuntimeException e) {
+            request.fail(e);
+            return true;
+        }
     }
 
+    /**
+     * Closes channel, puts and parked takes that are left are rejected, values that are already
+     * in buffer, including pending batch that is flushed on close if buffer has room for it, can still be taken.
+     * Parked puts are failed with "Channel is closed." at once, parked takes once buffer is drained.
+     */
     @Override
     public void close() {
+        if (this.batching != null) {
+            flushBatch(null);
+        }
         this.isClosed = true;
+        dispatch();
+        if (this.metrics != null) {
+            this.metrics.unregister();
+        }
+    }
+
+    /**
+     * Channel metrics, present if enabled with {@link ChannelBuilder#withMetrics(String)}.
+     * @return optional metrics
+     */
+    public Optional<ChannelMetrics> getMetrics() {
+        return Optional.ofNullable(this.metrics);
     }
 
     @Override
@@ -244,62 +1346,390 @@ public final class Channel<T, I> implements IChannel<T, I> {
     }
 
     @Override
-    public synchronized CompletableFuture<T> take() {
-        final Optional<Supplier<T>> valueOption = this.buffer.remove();
-        final CompletableFuture<T> takeRequest = within(new CompletableFuture<>(), this.takeTimeout);
+    public CompletableFuture<T> take() {
+        final Supplier<T> valueSupplier = pollFromBuffer();
+        if (valueSupplier != null) {
+            if (!this.putRequests.isEmpty()) {
+                dispatch();
+            }
+            final CompletableFuture<T> takeRequest = isDirect(valueSupplier)
+                ? new CompletableFuture<>() : takeRequest();
+            deliver(valueSupplier, takeRequest);
+            return takeRequest;
+        }
         if (this.isClosed) {
+            final CompletableFuture<T> takeRequest = new CompletableFuture<>();
             takeRequest.completeExceptionally(new AsyncException("Channel is closed."));
+            return takeRequest;
+        }
+        final CompletableFuture<T> takeRequest = takeRequest();
+        if (acquire(this.currentTakeRequestsCount, this.maxTakeRequests)) {
+            parkTake(new SingleTakeRequest(takeRequest), takeRequest);
         } else {
-            if (valueOption.isPresent()) {
-                final Supplier<T> valueSupplier = valueOption.get();
-                PutRequest putRequest = this.putRequests.poll();
-                while (putRequest != null && putRequest.requestFuture.isDone()) {
-                    putRequest = this.putRequests.poll();
-                }
-                Optional.ofNullable(putRequest).ifPresent(request -> {
-                        final boolean isAdded = this.buffer.add(valueSupplier);
-                        if (isAdded) {
-                            request.requestFuture.complete(Optional.of(valueSupplier));
-                            this.currentPutRequestsCount.decrementAndGet();
-                        } else {
-                            this.putRequests.addFirst(request);
-                        }
-                    });
-                CompletableFuture.supplyAsync(valueOption.get(), this.executor).whenComplete((res, exc) -> {
-                        if (res != null) {
-                            takeRequest.complete(res);
-                        } else {
-                            takeRequest.completeExceptionally(exc);
-                        }
-                    });
-            } else {
-                if (this.currentTakeRequestsCount.get() >= this.maxTakeRequests) {
-                    takeRequest.completeExceptionally(new AsyncException("Take queue is full."));
-                } else {
-                    this.currentTakeRequestsCount.incrementAndGet();
-                    this.takeRequests.offer(takeRequest);
-                }
+            rejectTake(takeRequest);
+        }
+        return takeRequest;
+    }
+
+    @Override
+    public CompletableFuture<T> take(BooleanSupplier claim) {
+        final CompletableFuture<T> takeRequest = takeRequest();
+        final ClaimedTakeRequest request = new ClaimedTakeRequest(claim, takeRequest);
+        if (request.fulfil()) {
+            if (!this.putRequests.isEmpty()) {
+                dispatch();
             }
+        } else if (this.isClosed) {
+            takeRequest.completeExceptionally(new AsyncException("Channel is closed."));
+        } else if (acquire(this.currentTakeRequestsCount, this.maxTakeRequests)) {
+            parkTake(request, takeRequest);
+        } else {
+            rejectTake(takeRequest);
         }
         return takeRequest;
     }
 
     @Override
-    public synchronized CompletableFuture<Optional<Supplier<T>>> put(Supplier<I> value) {
-        final CompletableFuture<Optional<Supplier<T>>> putRequest = new CompletableFuture<>();
+    public CompletableFuture<List<T>> takeBatch(int max) {
+        if (max < 1) {
+            throw new IllegalArgumentException("Batch size must be greater then zero");
+        }
+        final CompletableFuture<List<T>> takeRequest = takeRequest();
+        final List<Supplier<T>> valueSuppliers = pollBatch(max);
+        if (!valueSuppliers.isEmpty()) {
+            if (!this.putRequests.isEmpty()) {
+                dispatch();
+            }
+            deliverBatch(valueSuppliers, takeRequest);
+        } else if (this.isClosed) {
+            takeRequest.completeExceptionally(new AsyncException("Channel is closed."));
+        } else if (acquire(this.currentTakeRequestsCount, this.maxTakeRequests)) {
+            parkTake(new BatchTakeRequest(max, takeRequest), takeRequest);
+        } else {
+            rejectTake(takeRequest);
+        }
+        return takeRequest;
+    }
+
+    @Override
+    public T poll() {
+        final Supplier<T> valueSupplier = pollFromBuffer();
+        if (valueSupplier == null) {
+            return null;
+        }
+        if (!this.putRequests.isEmpty()) {
+            dispatch();
+        }
+        return valueSupplier.get();
+    }
+
+    @Override
+    public int drainTo(Collection<? super T> target, int max) {
+        int drained = 0;
+        Supplier<T> valueSupplier;
+        while (drained < max && (valueSupplier = pollFromBuffer()) != null) {
+            target.add(valueSupplier.get());
+            drained++;
+        }
+        if (drained > 0 && !this.putRequests.isEmpty()) {
+            dispatch();
+        }
+        return drained;
+    }
+
+    @Override
+    public T takeBlocking(Duration timeout) throws InterruptedException, TimeoutException {
+        final long deadline = System.nanoTime() + timeout.toNanos();
+        final Supplier<T> valueSupplier = pollFromBuffer();
+        if (valueSupplier != null) {
+            if (!this.putRequests.isEmpty()) {
+                dispatch();
+            }
+            return valueSupplier.get();
+        }
+        if (this.isClosed) {
+            throw new AsyncException("Channel is closed.");
+        }
+        if (!acquire(this.currentTakeRequestsCount, this.maxTakeRequests)) {
+            throw takeRejected();
+        }
+        final BlockingTakeRequest request = new BlockingTakeRequest();
+        this.takeRequests.offer(request);
+        dispatch();
+        final boolean isFulfilled;
+        try {
+            isFulfilled = request.waiter.await(deadline);
+        } catch (InterruptedException e) {
+            releaseTake(request);
+            throw e;
+        }
+        if (!isFulfilled) {
+            releaseTake(request);
+            if (this.metrics != null) {
+                this.metrics.onTakeTimeout();
+            }
+            throw new TimeoutException("Timeout after " + timeout);
+        }
+        if (request.error != null) {
+            throw request.error;
+        }
+        return request.valueSupplier.get();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public boolean putBlocking(Supplier<I> value, Duration timeout) throws InterruptedException, TimeoutException {
+        if (this.isClosed) {
+            throw new AsyncException("Channel is closed.");
+        }
+        final long deadline = System.nanoTime() + timeout.toNanos();
+        final Supplier<I> input = evaluate(value);
+        if (this.transducerLock == null) {
+            // Identity transducer, so I is T
+            putBlocking((Supplier<T>) input, deadline, timeout);
+            return true;
+        }
+        final List<Supplier<T>> suppliers = transduce(Collections.singletonList(input));
+        for (Supplier<T> supplier : suppliers) {
+            putBlocking(supplier, deadline, timeout);
+        }
+        return !suppliers.isEmpty();
+    }
+
+    private void putBlocking(Supplier<T> supplier, long deadline, Duration timeout)
+        throws InterruptedException, TimeoutException {
+        if (this.putRequests.isEmpty() && addToBuffer(supplier)) {
+            if (!this.takeRequests.isEmpty()) {
+                dispatch();
+            }
+            return;
+        }
+        if (!acquire(this.currentPutRequestsCount, this.maxPutRequests)) {
+            throw putRejected();
+        }
+        final BlockingPutRequest request = new BlockingPutRequest(supplier);
+        this.putRequests.offer(request);
+        dispatch();
+        final boolean isFulfilled;
+        try {
+            isFulfilled = request.waiter.await(deadline);
+        } catch (InterruptedException e) {
+            releasePut(request);
+            throw e;
+        }
+        if (!isFulfilled) {
+            releasePut(request);
+            if (this.metrics != null) {
+                this.metrics.onPutTimeout();
+            }
+            throw new TimeoutException("Timeout after " + timeout);
+        }
+        if (request.error != null) {
+            throw request.error;
+        }
+    }
+
+    /**
+     * Offer is accepted only if buffer has room for all values that transducer expands input into,
+     * otherwise the values are discarded and nothing is parked. Input still goes through transducer,
+     * so stateful transducer sees it even if offer is not accepted.
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public boolean offer(Supplier<I> value) {
+        if (this.isClosed) {
+            return false;
+        }
+        final Supplier<I> input = evaluate(value);
+        if (this.transducerLock == null) {
+            // Identity transducer, so I is T
+            return offerTransduced((Supplier<T>) input);
+        }
+        this.transducerLock.lock();
+        try {
+            if (!this.putRequests.isEmpty() || this.buffer.isFull()) {
+                return false;
+            }
+            final List<Supplier<T>> suppliers = transduceBatch(Collections.singletonList(input));
+            if (suppliers.size() > this.buffer.remainingCapacity()) {
+                return false;
+            }
+            for (Supplier<T> supplier : suppliers) {
+                if (!offerTransduced(supplier)) {
+                    return false;
+                }
+            }
+            return true;
+        } finally {
+            this.transducerLock.unlock();
+        }
+    }
+
+    private boolean offerTransduced(Supplier<T> valueSupplier) {
+        if (this.putRequests.isEmpty() && addToBuffer(valueSupplier)) {
+            if (!this.takeRequests.isEmpty()) {
+                dispatch();
+            }
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public CompletableFuture<Optional<Supplier<T>>> put(Supplier<I> value) {
+        if (this.isClosed) {
+            final CompletableFuture<Optional<Supplier<T>>> putRequest = new CompletableFuture<>();
+            putRequest.completeExceptionally(new AsyncException("Channel is closed."));
+            return putRequest;
+        }
+        final Supplier<I> input;
+        try {
+            input = evaluate(value);
+        } catch (RuntimeException e) {
+            final CompletableFuture<Optional<Supplier<T>>> putRequest = new CompletableFuture<>();
+            putRequest.completeExceptionally(e);
+            return putRequest;
+        }
+        if (this.transducerLock == null) {
+            // Identity transducer, so I is T
+            return putTransduced((Supplier<T>) input);
+        }
+        this.transducerLock.lock();
+        try {
+            // Values are put holding the lock, so that values of consecutive puts keep their order
+            return putExpanded(transduceBatch(Collections.singletonList(input)));
+        } finally {
+            this.transducerLock.unlock();
+        }
+    }
+
+    /**
+     * Puts values that single input expanded into.
+     * @return put of the last value, or empty optional if input was filtered out
+     */
+    private CompletableFuture<Optional<Supplier<T>>> putExpanded(List<Supplier<T>> suppliers) {
+        CompletableFuture<Optional<Supplier<T>>> putRequest = CompletableFuture.completedFuture(Optional.empty());
+        for (Supplier<T> supplier : suppliers) {
+            putRequest = putTransduced(supplier);
+        }
+        return putRequest;
+    }
+
+    @Override
+    public CompletableFuture<Optional<Supplier<T>>> put(Supplier<I> value, BooleanSupplier claim) {
+        final CompletableFuture<Optional<Supplier<T>>> putRequest = putRequest();
         if (this.isClosed) {
             putRequest.completeExceptionally(new AsyncException("Channel is closed."));
+            return putRequest;
+        }
+        final Supplier<I> input;
+        try {
+            input = evaluate(value);
+        } catch (RuntimeException e) {
+            putRequest.completeExceptionally(e);
+            return putRequest;
+        }
+        final List<Supplier<T>> suppliers = transduce(Collections.singletonList(input));
+        final ClaimedPutRequest request = new ClaimedPutRequest(suppliers, claim, putRequest);
+        if (this.putRequests.isEmpty() && request.fulfil()) {
+            if (!this.takeRequests.isEmpty()) {
+                dispatch();
+            }
+        } else if (acquire(this.currentPutRequestsCount, this.maxPutRequests)) {
+            parkPut(request, putRequest);
         } else {
-            this.transducedReducer.apply(CompletableFuture.completedFuture(Optional.empty()), value).get()
-                .whenComplete((res, exc) -> {
-                        if (res != null) {
-                            putRequest.complete(res);
-                        } else {
-                            putRequest.completeExceptionally(exc);
-                        }
-                    });
+            rejectPut(putRequest);
         }
         return putRequest;
     }
 
+    @Override
+    public CompletableFuture<Integer> putAll(Iterable<Supplier<I>> values) {
+        if (this.isClosed) {
+            final CompletableFuture<Integer> putRequest = new CompletableFuture<>();
+            putRequest.completeExceptionally(new AsyncException("Channel is closed."));
+            return putRequest;
+        }
+        final List<Supplier<T>> suppliers;
+        try {
+            suppliers = transduce(this.isValueMode ? evaluateAll(values) : values);
+        } catch (RuntimeException e) {
+            final CompletableFuture<Integer> putRequest = new CompletableFuture<>();
+            putRequest.completeExceptionally(e);
+            return putRequest;
+        }
+        int next = 0;
+        if (this.putRequests.isEmpty()) {
+            while (next < suppliers.size() && addToBuffer(suppliers.get(next))) {
+                next++;
+            }
+        }
+        if (next > 0 && !this.takeRequests.isEmpty()) {
+            dispatch();
+        }
+        if (next == suppliers.size()) {
+            return CompletableFuture.completedFuture(next);
+        }
+        if (!acquire(this.currentPutRequestsCount, this.maxPutRequests)) {
+            final CompletableFuture<Integer> putRequest = new CompletableFuture<>();
+            rejectPut(putRequest);
+            return putRequest;
+        }
+        final BatchPutRequest request = new BatchPutRequest(suppliers, next);
+        parkPut(request, request.requestFuture);
+        return request.requestFuture;
+    }
+
+    /**
+     * Evaluates input of value mode channel on the put path, so that parked put never runs supplier
+     * in dispatch loop and supplier that fails fails its own put only.
+     */
+    private Supplier<I> evaluate(Supplier<I> value) {
+        return this.isValueMode ? LangUtils.supply(value.get()) : value;
+    }
+
+    /**
+     * Evaluates inputs of value mode putAll before any of them is put, so supplier that fails fails
+     * whole putAll and nothing is put.
+     */
+    private List<Supplier<I>> evaluateAll(Iterable<Supplier<I>> values) {
+        final List<Supplier<I>> inputs = new ArrayList<>();
+        for (Supplier<I> value : values) {
+            inputs.add(evaluate(value));
+        }
+        return inputs;
+    }
+
+    /**
+     * Runs values through transducer holding transducer lock.
+     */
+    private List<Supplier<T>> transduce(Iterable<Supplier<I>> values) {
+        if (this.transducerLock == null) {
+            return transduceBatch(values);
+        }
+        this.transducerLock.lock();
+        try {
+            return transduceBatch(values);
+        } finally {
+            this.transducerLock.unlock();
+        }
+    }
+
+    /**
+     * Runs all values through transducer in one reduction, without completing it, so that
+     * stateful transducers behave the same way as for consecutive single puts.
+     */
+    private List<Supplier<T>> transduceBatch(Iterable<Supplier<I>> values) {
+        final List<Supplier<T>> suppliers = values instanceof Collection
+            ? new ArrayList<>(((Collection<?>) values).size()) : new ArrayList<>();
+        for (Supplier<I> value : values) {
+            final Reduction<List<Supplier<T>>> reduction = this.batchReducer.apply(suppliers, value);
+            if (reduction.isReduced()) {
+                break;
+            }
+        }
+        return suppliers;
+    }
+
 }
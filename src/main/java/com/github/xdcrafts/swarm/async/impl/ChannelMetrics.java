@@ -0,0 +1,253 @@
+package com.github.xdcrafts.swarm.async.impl;
+
+import com.github.xdcrafts.swarm.async.AsyncException;
+import com.github.xdcrafts.swarm.util.Histogram;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntSupplier;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Metrics of single channel. Counters are LongAdders and latency is recorded into lock-free
+ * histogram, so recording does not add contention between producers and consumers.
+ * Registered in platform MBean server as com.github.xdcrafts.swarm:type=Channel,name=[name], channels
+ * that share name are registered as [name]-2, [name]-3 and so on.
+ */
+public final class ChannelMetrics implements ChannelMetricsMXBean {
+
+    /**
+     * Supplier wrapper that remembers when value was put into buffer.
+     * @param <T> value type
+     */
+    static final class TimedSupplier<T> implements Supplier<T> {
+        final Supplier<T> supplier;
+        final long timestamp;
+        TimedSupplier(Supplier<T> supplier, long timestamp) {
+            this.supplier = supplier;
+            this.timestamp = timestamp;
+        }
+        @Override
+        public T get() {
+            return this.supplier.get();
+        }
+    }
+
+    private final String name;
+
+    private final LongAdder puts = new LongAdder();
+    private final LongAdder takes = new LongAdder();
+    private final LongAdder putRejections = new LongAdder();
+    private final LongAdder takeRejections = new LongAdder();
+    private final LongAdder putTimeouts = new LongAdder();
+    private final LongAdder takeTimeouts = new LongAdder();
+    private final Histogram latency = new Histogram();
+
+    private volatile IntSupplier bufferSize = () -> 0;
+    private volatile LongSupplier drops = () -> 0;
+    private volatile IntSupplier putRequests = () -> 0;
+    private volatile IntSupplier takeRequests = () -> 0;
+
+    private volatile ObjectName objectName;
+
+    public ChannelMetrics(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return this.name;
+    }
+
+    /**
+     * Binds gauges to channel state.
+     */
+    void bind(
+        IntSupplier bufferSizeGauge, LongSupplier dropsGauge, IntSupplier putRequestsGauge, IntSupplier takeRequestsGauge
+    ) {
+        this.bufferSize = bufferSizeGauge;
+        this.drops = dropsGauge;
+        this.putRequests = putRequestsGauge;
+        this.takeRequests = takeRequestsGauge;
+    }
+
+    /**
+     * Name this metrics is registered with in platform MBean server.
+     * @return object name or null if metrics is not registered
+     */
+    public ObjectName getObjectName() {
+        return this.objectName;
+    }
+
+    /**
+     * Registers this metrics in platform MBean server, name that is already taken gets unique suffix.
+     */
+    void register() {
+        try {
+            final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            for (int n = 1; ; n++) {
+                final ObjectName objectName = new ObjectName(
+                    "com.github.xdcrafts.swarm:type=Channel,name="
+                        + ObjectName.quote(n == 1 ? this.name : this.name + "-" + n)
+                );
+                try {
+                    server.registerMBean(this, objectName);
+                    this.objectName = objectName;
+                    return;
+                } catch (InstanceAlreadyExistsException e) {
+                    // Taken by another channel, try next suffix
+                }
+            }
+        } catch (JMException e) {
+            throw new AsyncException("Unable to register channel metrics " + this.name, e);
+        }
+    }
+
+    /**
+     * Unregisters this metrics from platform MBean server, only registration made by this metrics is removed.
+     */
+    void unregister() {
+        final ObjectName registered = this.objectName;
+        if (registered != null) {
+            this.objectName = null;
+            try {
+                ManagementFactory.getPlatformMBeanServer().unregisterMBean(registered);
+            } catch (JMException e) {
+                // Already unregistered
+            }
+        }
+    }
+
+    <T> Supplier<T> timed(Supplier<T> supplier) {
+        return new TimedSupplier<>(supplier, System.nanoTime());
+    }
+
+    void onPut() {
+        this.puts.increment();
+    }
+
+    @SuppressWarnings("unchecked")
+    <T> Supplier<T> onTake(Supplier<T> supplier) {
+        this.takes.increment();
+        if (supplier instanceof TimedSupplier) {
+            final TimedSupplier<T> timed = (TimedSupplier<T>) supplier;
+            this.latency.record(System.nanoTime() - timed.timestamp);
+            return timed.supplier;
+        }
+        return supplier;
+    }
+
+    void onPutRejection() {
+        this.putRejections.increment();
+    }
+
+    void onTakeRejection() {
+        this.takeRejections.increment();
+    }
+
+    void onPutTimeout() {
+        this.putTimeouts.increment();
+    }
+
+    void onTakeTimeout() {
+        this.takeTimeouts.increment();
+    }
+
+    /**
+     * Histogram of time values spent in buffer, nanoseconds.
+     * @return latency histogram
+     */
+    public Histogram getLatency() {
+        return this.latency;
+    }
+
+    @Override
+    public int getBufferSize() {
+        return this.bufferSize.getAsInt();
+    }
+
+    @Override
+    public long getDrops() {
+        return this.drops.getAsLong();
+    }
+
+    @Override
+    public int getPutRequests() {
+        return this.putRequests.getAsInt();
+    }
+
+    @Override
+    public int getTakeRequests() {
+        return this.takeRequests.getAsInt();
+    }
+
+    @Override
+    public long getPuts() {
+        return this.puts.sum();
+    }
+
+    @Override
+    public long getTakes() {
+        return this.takes.sum();
+    }
+
+    @Override
+    public long getPutRejections() {
+        return this.putRejections.sum();
+    }
+
+    @Override
+    public long getTakeRejections() {
+        return this.takeRejections.sum();
+    }
+
+    @Override
+    public long getPutTimeouts() {
+        return this.putTimeouts.sum();
+    }
+
+    @Override
+    public long getTakeTimeouts() {
+        return this.takeTimeouts.sum();
+    }
+
+    @Override
+    public double getLatencyMean() {
+        return this.latency.mean();
+    }
+
+    @Override
+    public long getLatencyP50() {
+        return this.latency.percentile(50);
+    }
+
+    @Override
+    public long getLatencyP99() {
+        return this.latency.percentile(99);
+    }
+
+    @Override
+    public long getLatencyP999() {
+        return this.latency.percentile(99.9);
+    }
+
+    @Override
+    public long getLatencyMax() {
+        return this.latency.max();
+    }
+
+    @Override
+    public void reset() {
+        this.puts.reset();
+        this.takes.reset();
+        this.putRejections.reset();
+        this.takeRejections.reset();
+        this.putTimeouts.reset();
+        this.takeTimeouts.reset();
+        this.latency.reset();
+    }
+}
@@ -0,0 +1,102 @@
+package com.github.xdcrafts.swarm.async.impl;
+
+/**
+ * JMX view of channel metrics.
+ */
+public interface ChannelMetricsMXBean {
+
+    /**
+     * Number of values in buffer.
+     * @return size
+     */
+    int getBufferSize();
+
+    /**
+     * Number of values discarded by sliding or dropping buffer.
+     * @return count
+     */
+    long getDrops();
+
+    /**
+     * Number of parked put requests.
+     * @return count
+     */
+    int getPutRequests();
+
+    /**
+     * Number of parked take requests.
+     * @return count
+     */
+    int getTakeRequests();
+
+    /**
+     * Number of values put into buffer.
+     * @return count
+     */
+    long getPuts();
+
+    /**
+     * Number of values taken from buffer.
+     * @return count
+     */
+    long getTakes();
+
+    /**
+     * Number of puts rejected because put request queue was full.
+     * @return count
+     */
+    long getPutRejections();
+
+    /**
+     * Number of takes rejected because take request queue was full.
+     * @return count
+     */
+    long getTakeRejections();
+
+    /**
+     * Number of puts that timed out.
+     * @return count
+     */
+    long getPutTimeouts();
+
+    /**
+     * Number of takes that timed out.
+     * @return count
+     */
+    long getTakeTimeouts();
+
+    /**
+     * Mean time values spent in buffer, nanoseconds.
+     * @return mean latency
+     */
+    double getLatencyMean();
+
+    /**
+     * Median time values spent in buffer, nanoseconds.
+     * @return latency
+     */
+    long getLatencyP50();
+
+    /**
+     * 99th percentile of time values spent in buffer, nanoseconds.
+     * @return latency
+     */
+    long getLatencyP99();
+
+    /**
+     * 99.9th percentile of time values spent in buffer, nanoseconds.
+     * @return latency
+     */
+    long getLatencyP999();
+
+    /**
+     * Max time value spent in buffer, nanoseconds.
+     * @return latency
+     */
+    long getLatencyMax();
+
+    /**
+     * Resets counters and latency histogram.
+     */
+    void reset();
+}
@@ -0,0 +1,488 @@
+package com.github.xdcrafts.swarm.async.impl;
+
+import com.github.xdcrafts.swarm.async.AsyncException;
+import com.github.xdcrafts.swarm.async.IChannel;
+import com.github.xdcrafts.swarm.util.LangUtils;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Supplier;
+
+import static com.github.xdcrafts.swarm.util.FutureUtils.TIMEOUT_TIMER;
+import static com.github.xdcrafts.swarm.util.FutureUtils.within;
+
+/**
+ * Channel of delayed values, value put with delay is taken no earlier then its delay passes.
+ * Values that are due within one wheel revolution sit in timing wheel buckets, later ones sit in
+ * overflow buckets of one revolution each, ordered by heap of revolutions, and are moved to wheel once
+ * their revolution starts. So put costs O(1) amortized, heap grows only by one entry per revolution
+ * that has values, and every value is moved at most once. Values due at the same tick are taken in put order,
+ * values are never taken early, but may be taken up to one tick late.
+ * Wheel is advanced lazily by take operations, take of channel with no due values is parked and woken
+ * by single timer task at the earliest deadline, no polling happens while there is nothing to take.
+ * Values are evaluated on take. Operations are serialized with channel monitor.
+ * Values that are left in closed channel can still be taken once they are due, parked takes are failed on close.
+ * @param <T> value type
+ */
+public final class DelayChannel<T> implements IChannel<T, T> {
+
+    /**
+     * Builder API for delay channel.
+     * @param <T> value type
+     */
+    public static final class DelayChannelBuilder<T> implements Supplier<DelayChannel<T>> {
+        private volatile Executor executor = ForkJoinPool.commonPool();
+        private volatile int capacity = Integer.MAX_VALUE;
+        private volatile Duration tickDuration = Duration.ofMillis(1);
+        private volatile int wheelSize = 4096;
+        private volatile int maxTakeRequests = 16384;
+        private volatile Duration takeDuration = Duration.ofSeconds(1);
+        /**
+         * Setup executor, parked takes are completed on it.
+         * @param e executor
+         * @return this builder instance
+         */
+        public DelayChannelBuilder<T> withExecutor(Executor e) {
+            this.executor = e;
+            return this;
+        }
+        /**
+         * Setup capacity.
+         * @param n max number of values, both delayed and due
+         * @return this builder instance
+         */
+        public DelayChannelBuilder<T> withCapacity(int n) {
+            this.capacity = n;
+            return this;
+        }
+        /**
+         * Setup wheel, values are due with tick precision and wheel covers ticks times size.
+         * @param tick tick duration
+         * @param size number of wheel buckets, rounded up to power of two
+         * @return this builder instance
+         */
+        public DelayChannelBuilder<T> withWheel(Duration tick, int size) {
+            this.tickDuration = tick;
+            this.wheelSize = size;
+            return this;
+        }
+        /**
+         * Setup max take requests.
+         * @param  max max number of take requests
+         * @return this builder instance
+         */
+        public DelayChannelBuilder<T> withMaxTakeRequests(int max) {
+            this.maxTakeRequests = max;
+            return this;
+        }
+        /**
+         * Setup take timeout.
+         * @param timeout take timeout duration
+         * @return this builder instance
+         */
+        public DelayChannelBuilder<T> withTakeTimeout(Duration timeout) {
+            this.takeDuration = timeout;
+            return this;
+        }
+        @Override
+        public DelayChannel<T> get() {
+            return new DelayChannel<>(
+                this.executor,
+                this.capacity,
+                this.tickDuration,
+                this.wheelSize,
+                this.maxTakeRequests,
+                this.takeDuration
+            );
+        }
+    }
+
+    /**
+     * Creates new delay channel builder.
+     * @param <T> channel values type
+     * @return new channel builder
+     */
+    public static <T> DelayChannelBuilder<T> delayChannel() {
+        return new DelayChannelBuilder<>();
+    }
+
+    /**
+     * Delayed value and its deadline tick.
+     */
+    private static final class Entry<T> {
+        final Supplier<T> valueSupplier;
+        final long tick;
+        Entry(Supplier<T> valueSupplier, long tick) {
+            this.valueSupplier = valueSupplier;
+            this.tick = tick;
+        }
+    }
+
+    private final Executor executor;
+    private final int capacity;
+    private final long tickNanos;
+    private final int wheelShift;
+    private final int mask;
+    private final int maxTakeRequests;
+    private final Duration takeTimeout;
+    private final long startTime = System.nanoTime();
+
+    private final ArrayDeque<Entry<T>>[] wheel;
+    private final Map<Long, ArrayDeque<Entry<T>>> overflow = new HashMap<>();
+    private final PriorityQueue<Long> revolutions = new PriorityQueue<>();
+    private final ArrayDeque<Supplier<T>> ready = new ArrayDeque<>();
+    private final LinkedHashSet<CompletableFuture<T>> takes = new LinkedHashSet<>();
+
+    /**
+     * Last processed tick, values with deadline up to this tick are ready.
+     */
+    private long tick;
+    private int wheelCount = 0;
+    private int delayedCount = 0;
+    /**
+     * Tick that timer task is scheduled for, or -1 if there is none.
+     */
+    private long timerTick = -1;
+
+    private volatile boolean isClosed = false;
+
+    @SuppressWarnings("unchecked")
+    private DelayChannel(
+        Executor executor, int capacity, Duration tickDuration, int wheelSize, int maxTakeRequests, Duration takeTimeout
+    ) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Buffer capacity must be greater then zero");
+        }
+        if (wheelSize < 1 || wheelSize > 1 << 30) {
+            throw new IllegalArgumentException("Wheel size must be between 1 and 2^30");
+        }
+        if (tickDuration.isNegative() || tickDuration.isZero()) {
+            throw new IllegalArgumentException("Tick duration must be positive");
+        }
+        final int size = wheelSize == 1 ? 1 : Integer.highestOneBit(wheelSize - 1) << 1;
+        this.executor = executor;
+        this.capacity = capacity;
+        this.tickNanos = tickDuration.toNanos();
+        this.wheelShift = Integer.numberOfTrailingZeros(size);
+        this.mask = size - 1;
+        this.maxTakeRequests = maxTakeRequests;
+        this.takeTimeout = takeTimeout;
+        this.wheel = (ArrayDeque<Entry<T>>[]) new ArrayDeque<?>[size];
+        for (int i = 0; i < size; i++) {
+            this.wheel[i] = new ArrayDeque<>();
+        }
+    }
+
+    /**
+     * Number of values in channel, both delayed and due.
+     * @return size
+     */
+    public synchronized int size() {
+        return this.delayedCount + this.ready.size();
+    }
+
+    /**
+     * Number of values that are not due yet, as of last take.
+     * @return delayed values count
+     */
+    public synchronized int delayedCount() {
+        return this.delayedCount;
+    }
+
+    @Override
+    public void close() {
+        final List<CompletableFuture<T>> parked;
+        synchronized (this) {
+            this.isClosed = true;
+            parked = new ArrayList<>(this.takes);
+            this.takes.clear();
+        }
+        parked.forEach(take -> take.completeExceptionally(new AsyncException("Channel is closed.")));
+    }
+
+    @Override
+    public boolean isClosed() {
+        return this.isClosed;
+    }
+
+    /**
+     * Non-blocking put of value that is due after delay.
+     * @param value supplier of value
+     * @param delay delay, zero or negative delay makes value due right away
+     * @return true if value was accepted, false if channel is full or closed
+     */
+    public boolean offer(Supplier<T> value, Duration delay) {
+        if (value == null) {
+            throw new NullPointerException("Channel does not accept null values");
+        }
+        final boolean isReady;
+        synchronized (this) {
+            if (this.isClosed || size() >= this.capacity) {
+                return false;
+            }
+            final long deadline = System.nanoTime() + Math.max(0, delay.toNanos()) - this.startTime;
+            // Rounded up, so that value is never due early
+            schedule(new Entry<>(value, (deadline + this.tickNanos - 1) / this.tickNanos));
+            isReady = !this.ready.isEmpty() && !this.takes.isEmpty();
+        }
+        if (isReady) {
+            this.executor.execute(this::dispatch);
+        }
+        return true;
+    }
+
+    @Override
+    public boolean offer(Supplier<T> value) {
+        return offer(value, Duration.ZERO);
+    }
+
+    /**
+     * Async put of value that is due after delay. Put never waits, it completes right away.
+     * @param value supplier of value
+     * @param delay delay, zero or negative delay makes value due right away
+     * @return completable future with optional, if optional is empty than channel is full and put is not done
+     */
+    public CompletableFuture<Optional<Supplier<T>>> put(Supplier<T> value, Duration delay) {
+        if (this.isClosed) {
+            final CompletableFuture<Optional<Supplier<T>>> putRequest = new CompletableFuture<>();
+            putRequest.completeExceptionally(new AsyncException("Channel is closed."));
+            return putRequest;
+        }
+        return CompletableFuture.completedFuture(offer(value, delay) ? Optional.of(value) : Optional.empty());
+    }
+
+    @Override
+    public CompletableFuture<Optional<Supplier<T>>> put(Supplier<T> value) {
+        return put(value, Duration.ZERO);
+    }
+
+    @Override
+    public T poll() {
+        final Supplier<T> valueSupplier;
+        synchronized (this) {
+            advance();
+            valueSupplier = this.ready.poll();
+        }
+        return valueSupplier == null ? null : valueSupplier.get();
+    }
+
+    @Override
+    public int drainTo(Collection<? super T> target, int max) {
+        final List<Supplier<T>> valueSuppliers = new ArrayList<>();
+        synchronized (this) {
+            advance();
+            Supplier<T> valueSupplier;
+            while (valueSuppliers.size() < max && (valueSupplier = this.ready.poll()) != null) {
+                valueSuppliers.add(valueSupplier);
+            }
+        }
+        for (Supplier<T> valueSupplier : valueSuppliers) {
+            target.add(valueSupplier.get());
+        }
+        return valueSuppliers.size();
+    }
+
+    @Override
+    public CompletableFuture<T> take() {
+        final Supplier<T> valueSupplier;
+        final CompletableFuture<T> takeRequest;
+        synchronized (this) {
+            advance();
+            valueSupplier = this.ready.poll();
+            if (valueSupplier == null) {
+                if (this.isClosed) {
+                    final CompletableFuture<T> closed = new CompletableFuture<>();
+                    closed.completeExceptionally(new AsyncException("Channel is closed."));
+                    return closed;
+                }
+                takeRequest = within(new CompletableFuture<>(), this.takeTimeout);
+                if (this.takes.size() >= this.maxTakeRequests) {
+                    takeRequest.completeExceptionally(new AsyncException("Take queue is full."));
+                    return takeRequest;
+                }
+                this.takes.add(takeRequest);
+                scheduleTimer();
+            } else {
+                takeRequest = null;
+            }
+        }
+        if (takeRequest == null) {
+            return CompletableFuture.supplyAsync(valueSupplier, this.executor);
+        }
+        takeRequest.whenComplete((res, err) -> {
+                synchronized (this) {
+                    this.takes.remove(takeRequest);
+                }
+            });
+        return takeRequest;
+    }
+
+    @Override
+    public CompletableFuture<List<T>> takeBatch(int max) {
+        if (max < 1) {
+            throw new IllegalArgumentException("Batch size must be greater then zero");
+        }
+        return take().thenApply(value -> {
+                final List<T> values = new ArrayList<>(Math.min(max, 64));
+                values.add(value);
+                drainTo(values, max - 1);
+                return values;
+            });
+    }
+
+    /**
+     * Puts entry to ready queue, wheel or overflow, depending on how far its deadline is.
+     */
+    private void schedule(Entry<T> entry) {
+        if (entry.tick <= this.tick) {
+            this.ready.offer(entry.valueSupplier);
+            return;
+        }
+        this.delayedCount++;
+        if (entry.tick - this.tick <= this.mask + 1) {
+            this.wheel[(int) entry.tick & this.mask].offer(entry);
+            this.wheelCount++;
+        } else {
+            final long revolution = entry.tick >>> this.wheelShift;
+            ArrayDeque<Entry<T>> bucket = this.overflow.get(revolution);
+            if (bucket == null) {
+                bucket = new ArrayDeque<>();
+                this.overflow.put(revolution, bucket);
+                this.revolutions.offer(revolution);
+            }
+            bucket.offer(entry);
+        }
+        if (!this.takes.isEmpty() && (this.timerTick < 0 || entry.tick < this.timerTick)) {
+            scheduleTimer();
+        }
+    }
+
+    /**
+     * Moves entries that are due by now to ready queue. Ticks without entries are skipped at once.
+     */
+    private void advance() {
+        final long now = (System.nanoTime() - this.startTime) / this.tickNanos;
+        while (this.tick < now) {
+            if (this.wheelCount == 0) {
+                // Nothing in wheel, jump right before next revolution starts or to now
+                final Long revolution = this.revolutions.peek();
+                final long next = revolution == null ? now : Math.min(now, (revolution << this.wheelShift) - 1);
+                if (next > this.tick) {
+                    this.tick = next;
+                    cascade();
+                    continue;
+                }
+            }
+            this.tick++;
+            final ArrayDeque<Entry<T>> bucket = this.wheel[(int) this.tick & this.mask];
+            Entry<T> entry;
+            while ((entry = bucket.poll()) != null) {
+                this.ready.offer(entry.valueSupplier);
+                this.wheelCount--;
+                this.delayedCount--;
+            }
+            // Cascaded entry may be due a whole revolution later and land into bucket that was just drained
+            cascade();
+        }
+    }
+
+    /**
+     * Moves overflow revolutions that fit into wheel now, each entry is moved once.
+     */
+    private void cascade() {
+        Long revolution;
+        while ((revolution = this.revolutions.peek()) != null && (revolution << this.wheelShift) <= this.tick + 1) {
+            this.revolutions.poll();
+            for (Entry<T> entry : this.overflow.remove(revolution)) {
+                this.delayedCount--;
+                schedule(entry);
+            }
+        }
+    }
+
+    /**
+     * Schedules timer task at the earliest deadline, if somebody waits for it.
+     */
+    private void scheduleTimer() {
+        if (this.delayedCount == 0 || this.isClosed) {
+            return;
+        }
+        final long next = nextTick();
+        if (this.timerTick >= 0 && this.timerTick <= next) {
+            return;
+        }
+        this.timerTick = next;
+        final long delay = this.startTime + next * this.tickNanos - System.nanoTime();
+        TIMEOUT_TIMER.schedule(() -> this.executor.execute(() -> onTimer(next)), Duration.ofNanos(Math.max(0, delay)));
+    }
+
+    /**
+     * Earliest tick that has delayed values, or start of the earliest overflow revolution.
+     */
+    private long nextTick() {
+        if (this.wheelCount == 0) {
+            return (this.revolutions.peek() << this.wheelShift) - 1;
+        }
+        for (long t = this.tick + 1; ; t++) {
+            if (!this.wheel[(int) t & this.mask].isEmpty()) {
+                return t;
+            }
+        }
+    }
+
+    private void onTimer(long scheduledTick) {
+        synchronized (this) {
+            if (this.timerTick == scheduledTick) {
+                this.timerTick = -1;
+            }
+        }
+        dispatch();
+    }
+
+    /**
+     * Completes parked takes with due values, schedules timer for the rest.
+     */
+    private void dispatch() {
+        for (;;) {
+            final CompletableFuture<T> takeRequest;
+            final Supplier<T> valueSupplier;
+            synchronized (this) {
+                advance();
+                final Iterator<CompletableFuture<T>> iterator = this.takes.iterator();
+                if (this.ready.isEmpty() || !iterator.hasNext()) {
+                    if (!this.takes.isEmpty()) {
+                        scheduleTimer();
+                    }
+                    return;
+                }
+                takeRequest = iterator.next();
+                iterator.remove();
+                valueSupplier = this.ready.poll();
+            }
+            final T value;
+            try {
+                value = valueSupplier.get();
+            } catch (RuntimeException e) {
+                takeRequest.completeExceptionally(e);
+                continue;
+            }
+            if (!takeRequest.complete(value)) {
+                synchronized (this) {
+                    this.ready.offerFirst(LangUtils.supply(value));
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.github.xdcrafts.swarm.async.impl;
+
+import com.github.xdcrafts.swarm.async.IBuffer;
+
+import java.util.Optional;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Dropping buffer implementation. Never full, when there is no space left the new value
+ * is discarded, so puts to channel always complete immediately, with the value even if it was discarded.
+ * Discarded values are counted by {@link #droppedCount()} and by channel metrics.
+ * @param <T> value type
+ */
+public class DroppingBuffer<T> implements IBuffer<T> {
+
+    private final RingBuffer<T> values;
+
+    private final LongAdder dropped = new LongAdder();
+
+    public DroppingBuffer(int capacity) {
+        this.values = new RingBuffer<>(capacity);
+    }
+
+    @Override
+    public boolean add(T value) {
+        if (!this.values.add(value)) {
+            this.dropped.increment();
+        }
+        return true;
+    }
+
+    @Override
+    public T poll() {
+        return this.values.poll();
+    }
+
+    @Override
+    public Optional<T> remove() {
+        return Optional.ofNullable(poll());
+    }
+
+    @Override
+    public boolean isFull() {
+        return false;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return this.values.isEmpty();
+    }
+
+    @Override
+    public int size() {
+        return this.values.size();
+    }
+
+    @Override
+    public int remainingCapacity() {
+        return Integer.MAX_VALUE;
+    }
+
+    @Override
+    public long droppedCount() {
+        return this.dropped.sum();
+    }
+}
@@ -56,4 +56,9 @@ public class FixedBuffer<T> implements IBuffer<T> {
     public int size() {
         return this.currentSize.get();
     }
+
+    @Override
+    public int remainingCapacity() {
+        return Math.max(0, this.capacity - this.currentSize.get());
+    }
 }
@@ -0,0 +1,34 @@
+package com.github.xdcrafts.swarm.async.impl;
+
+/**
+ * Spin-then-park policy of threads blocked on channels.
+ * Replaced by multi-release variant on Java 21, where virtual threads park right away.
+ */
+final class Parking {
+
+    private static final int SPINS = 64;
+
+    private Parking() {
+        // Nothing
+    }
+
+    /**
+     * Number of spins before current thread is parked.
+     * @return spins
+     */
+    static int spins() {
+        return SPINS;
+    }
+
+    static void onSpinWait() {
+        Thread.yield();
+    }
+
+    /**
+     * Step of busy spin that never gives up the core. Java 8 has no spin-wait hint, so step is empty,
+     * caller spins on volatile read of state it waits for.
+     */
+    static void busySpin() {
+        // Nothing
+    }
+}
@@ -0,0 +1,175 @@
+package com.github.xdcrafts.swarm.async.impl;
+
+import com.github.xdcrafts.swarm.async.IBuffer;
+
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Optional;
+
+/**
+ * Buffer of serialized payloads that keeps bytes off heap. Payloads are copied into direct byte buffer
+ * regions as length prefixed frames, so buffered payloads cost no heap objects at all, and they are
+ * taken as read-only slices of the region, without copying bytes back.
+ * Regions are never reused: region is dropped once consumers advance past it, and its off-heap memory
+ * is reclaimed after its last slice is garbage collected, so slices stay valid for as long as they are referenced.
+ * Capacity is in bytes of frames, payload that does not fit into capacity is accepted only into empty buffer.
+ * Operations are serialized with buffer monitor.
+ */
+public class PayloadBuffer implements IBuffer<ByteBuffer> {
+
+    private static final int MIN_REGION_SIZE = 4 * 1024;
+    private static final int MAX_REGION_SIZE = 1024 * 1024;
+    private static final int FRAME_HEADER_SIZE = 4;
+
+    /**
+     * Direct byte buffer region, reader is read-only view of written frames.
+     */
+    private static final class Region {
+        final ByteBuffer writer;
+        final ByteBuffer reader;
+        int written;
+        int read;
+        Region(int capacity) {
+            this.writer = ByteBuffer.allocateDirect(capacity);
+            this.reader = this.writer.asReadOnlyBuffer();
+        }
+    }
+
+    private final long capacity;
+    private final int regionSize;
+
+    private final ArrayDeque<Region> regions = new ArrayDeque<>();
+
+    private volatile int size = 0;
+    private volatile long bytes = 0;
+    private volatile long regionBytes = 0;
+
+    /**
+     * Creates payload buffer with regions of quarter of capacity, but no less then 4 KB and no more then 1 MB,
+     * so small buffer does not hold megabyte of off-heap memory, and large one is reclaimed in steps
+     * of quarter of capacity at most.
+     * @param capacity max number of bytes of buffered frames
+     */
+    public PayloadBuffer(long capacity) {
+        this(capacity, defaultRegionSize(capacity));
+    }
+
+    /**
+     * Creates payload buffer.
+     * @param capacity max number of bytes of buffered frames
+     * @param regionSize size of direct byte buffer region, payload that is larger gets region of its own size
+     */
+    public PayloadBuffer(long capacity, int regionSize) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Buffer capacity must be greater then zero");
+        }
+        if (regionSize <= FRAME_HEADER_SIZE) {
+            throw new IllegalArgumentException("Region size must be greater then frame header size");
+        }
+        this.capacity = capacity;
+        this.regionSize = regionSize;
+    }
+
+    private static int defaultRegionSize(long capacity) {
+        return (int) Math.max(MIN_REGION_SIZE, Math.min(MAX_REGION_SIZE, capacity / 4));
+    }
+
+    /**
+     * Copies remaining bytes of payload, position of payload is not changed.
+     */
+    @Override
+    public synchronized boolean add(ByteBuffer payload) {
+        if (payload == null) {
+            throw new NullPointerException("Buffer does not accept null values");
+        }
+        final int length = payload.remaining();
+        final int frameSize = FRAME_HEADER_SIZE + length;
+        if (this.size > 0 && this.bytes + frameSize > this.capacity) {
+            return false;
+        }
+        Region region = this.regions.peekLast();
+        if (region == null || region.writer.remaining() < frameSize) {
+            if (region != null && region.read == region.written) {
+                this.regions.pollLast();
+                this.regionBytes -= region.writer.capacity();
+            }
+            region = new Region(Math.max(this.regionSize, frameSize));
+            this.regions.offer(region);
+            this.regionBytes += region.writer.capacity();
+        }
+        final int position = payload.position();
+        region.writer.putInt(length);
+        region.writer.put(payload);
+        ((Buffer) payload).position(position);
+        region.written++;
+        this.bytes += frameSize;
+        this.size++;
+        return true;
+    }
+
+    /**
+     * Takes read-only slice of the oldest payload.
+     */
+    @Override
+    public synchronized ByteBuffer poll() {
+        if (this.size == 0) {
+            return null;
+        }
+        Region region = this.regions.peek();
+        while (region.read == region.written) {
+            this.regions.poll();
+            this.regionBytes -= region.writer.capacity();
+            region = this.regions.peek();
+        }
+        final ByteBuffer reader = region.reader;
+        final int length = reader.getInt();
+        final ByteBuffer payload = reader.slice();
+        ((Buffer) payload).limit(length);
+        ((Buffer) reader).position(reader.position() + length);
+        region.read++;
+        if (region.read == region.written && region != this.regions.peekLast()) {
+            this.regions.poll();
+            this.regionBytes -= region.writer.capacity();
+        }
+        this.bytes -= FRAME_HEADER_SIZE + length;
+        this.size--;
+        return payload;
+    }
+
+    @Override
+    public Optional<ByteBuffer> remove() {
+        return Optional.ofNullable(poll());
+    }
+
+    @Override
+    public boolean isFull() {
+        return this.bytes >= this.capacity;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return this.size == 0;
+    }
+
+    @Override
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * Number of bytes that buffered frames take.
+     * @return bytes
+     */
+    public long bytes() {
+        return this.bytes;
+    }
+
+    /**
+     * Number of off-heap bytes of regions that buffer holds, regions that were dropped are not counted.
+     * @return bytes
+     */
+    public long regionBytes() {
+        return this.regionBytes;
+    }
+}
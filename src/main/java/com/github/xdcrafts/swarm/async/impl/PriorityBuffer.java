@@ -0,0 +1,217 @@
+package com.github.xdcrafts.swarm.async.impl;
+
+import com.github.xdcrafts.swarm.async.IBuffer;
+
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded priority buffer, values are taken smallest first according to comparator, values of equal
+ * priority are taken in FIFO order. Backed by concurrent skip list, so add and remove take O(log n)
+ * and producers and consumers do not lock each other out, they contend only on neighbouring nodes
+ * and on size counters.
+ * With aging enabled, the oldest value is taken first once it waited longer then aging duration,
+ * regardless of its priority, so low priority values wait no longer then aging plus time to drain
+ * values that aged before them. Value is claimed by whichever of priority or aging path gets it first,
+ * so it is taken once.
+ * @param <T> value type
+ */
+public class PriorityBuffer<T> implements IBuffer<T> {
+
+    /**
+     * Skip list entry, sequence keeps equal values apart and in FIFO order.
+     */
+    private static final class Entry<T> {
+        final T value;
+        final long sequence;
+        final long timestamp;
+        final AtomicBoolean isClaimed = new AtomicBoolean();
+        Entry(T value, long sequence, long timestamp) {
+            this.value = value;
+            this.sequence = sequence;
+            this.timestamp = timestamp;
+        }
+    }
+
+    private final int capacity;
+    private final Comparator<? super T> comparator;
+    private final long agingNanos;
+
+    private final ConcurrentSkipListSet<Entry<T>> entries;
+    /**
+     * Entries in insertion order, used only with aging, claimed entries are dropped lazily once they
+     * get to the head, or all at once when arrivals since last compaction outnumber capacity.
+     */
+    private final ConcurrentLinkedQueue<Entry<T>> arrivals;
+    private final AtomicInteger arrivalsCount = new AtomicInteger();
+    private final AtomicBoolean isCompacting = new AtomicBoolean();
+
+    private final AtomicLong sequence = new AtomicLong();
+    /**
+     * Entries that are in skip list or are being added to it, bounds buffer by capacity.
+     */
+    private final AtomicInteger reserved = new AtomicInteger();
+    /**
+     * Entries that are added and not claimed yet.
+     */
+    private final AtomicInteger size = new AtomicInteger();
+
+    /**
+     * Creates priority buffer without aging.
+     * @param capacity max number of values
+     * @param comparator priority of values, smaller first
+     */
+    public PriorityBuffer(int capacity, Comparator<? super T> comparator) {
+        this(capacity, comparator, null);
+    }
+
+    /**
+     * Creates priority buffer.
+     * @param capacity max number of values
+     * @param comparator priority of values, smaller first
+     * @param aging max time value waits before it is taken regardless of priority, or null to disable aging
+     */
+    public PriorityBuffer(int capacity, Comparator<? super T> comparator, Duration aging) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Buffer capacity must be greater then zero");
+        }
+        if (aging != null && aging.isNegative()) {
+            throw new IllegalArgumentException("Aging must not be negative");
+        }
+        this.capacity = capacity;
+        this.comparator = comparator;
+        this.agingNanos = aging == null ? -1 : aging.toNanos();
+        this.entries = new ConcurrentSkipListSet<>(this::compare);
+        this.arrivals = aging == null ? null : new ConcurrentLinkedQueue<>();
+    }
+
+    @Override
+    public boolean add(T value) {
+        if (value == null) {
+            throw new NullPointerException("Buffer does not accept null values");
+        }
+        int current;
+        do {
+            current = this.reserved.get();
+            if (current >= this.capacity) {
+                return false;
+            }
+        } while (!this.reserved.compareAndSet(current, current + 1));
+        final Entry<T> entry = new Entry<>(
+            value, this.sequence.getAndIncrement(), this.arrivals == null ? 0 : System.nanoTime()
+        );
+        try {
+            this.entries.add(entry);
+        } catch (RuntimeException e) {
+            this.reserved.decrementAndGet();
+            throw e;
+        }
+        this.size.incrementAndGet();
+        if (this.arrivals != null) {
+            this.arrivals.offer(entry);
+            if (this.arrivalsCount.incrementAndGet() > 2 * this.capacity) {
+                compact();
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public T poll() {
+        if (this.arrivals != null) {
+            final Entry<T> aged = pollAged();
+            if (aged != null) {
+                return aged.value;
+            }
+        }
+        Entry<T> entry;
+        while ((entry = this.entries.pollFirst()) != null) {
+            this.reserved.decrementAndGet();
+            if (entry.isClaimed.compareAndSet(false, true)) {
+                this.size.decrementAndGet();
+                return entry.value;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public Optional<T> remove() {
+        return Optional.ofNullable(poll());
+    }
+
+    @Override
+    public boolean isFull() {
+        return this.reserved.get() >= this.capacity;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return this.size.get() == 0;
+    }
+
+    @Override
+    public int size() {
+        return this.size.get();
+    }
+
+    @Override
+    public int remainingCapacity() {
+        return Math.max(0, this.capacity - this.reserved.get());
+    }
+
+    /**
+     * Claims the oldest entry if it waited longer then aging, drops claimed entries from head of arrivals.
+     */
+    private Entry<T> pollAged() {
+        Entry<T> oldest;
+        while ((oldest = this.arrivals.peek()) != null) {
+            if (!oldest.isClaimed.get()) {
+                if (System.nanoTime() - oldest.timestamp < this.agingNanos
+                    || !oldest.isClaimed.compareAndSet(false, true)) {
+                    return null;
+                }
+                this.size.decrementAndGet();
+                this.arrivals.remove(oldest);
+                try {
+                    if (this.entries.remove(oldest)) {
+                        this.reserved.decrementAndGet();
+                    }
+                } catch (RuntimeException e) {
+                    // Comparator failed, claimed entry stays in skip list till poll gets to it and releases its slot
+                }
+                return oldest;
+            }
+            // Removed by identity, so racing thread never drops entry that replaced it at the head
+            this.arrivals.remove(oldest);
+        }
+        return null;
+    }
+
+    /**
+     * Drops claimed entries from arrivals. Live entries are at most capacity, so at least capacity adds
+     * pass between compactions and compaction is amortized over them.
+     */
+    private void compact() {
+        if (!this.isCompacting.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            this.arrivals.removeIf(entry -> entry.isClaimed.get());
+            this.arrivalsCount.set(this.arrivals.size());
+        } finally {
+            this.isCompacting.set(false);
+        }
+    }
+
+    private int compare(Entry<T> left, Entry<T> right) {
+        final int result = this.comparator.compare(left.value, right.value);
+        return result != 0 ? result : Long.compare(left.sequence, right.sequence);
+    }
+}
@@ -0,0 +1,127 @@
+package com.github.xdcrafts.swarm.async.impl;
+
+import com.github.xdcrafts.swarm.async.IBuffer;
+
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded lock-free multi-producer multi-consumer buffer implementation.
+ * Values are stored in preallocated power-of-two array of slots, each slot carries
+ * sequence number that tells producers and consumers whose turn it is (D. Vyukov's
+ * bounded MPMC queue). Neither add nor poll allocate or take any locks.
+ * @param <T> value type
+ */
+public class RingBuffer<T> implements IBuffer<T> {
+
+    private final int capacity;
+    private final int mask;
+
+    private final AtomicReferenceArray<T> values;
+    private final AtomicLongArray sequences;
+
+    private final AtomicLong head = new AtomicLong();
+    private final AtomicLong tail = new AtomicLong();
+
+    public RingBuffer(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Buffer capacity must be greater then zero");
+        }
+        if (capacity > 1 << 30) {
+            throw new IllegalArgumentException("Buffer capacity must be less or equal to 2^30");
+        }
+        final int slots = capacity == 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+        this.capacity = capacity;
+        this.mask = slots - 1;
+        this.values = new AtomicReferenceArray<>(slots);
+        this.sequences = new AtomicLongArray(slots);
+        for (int i = 0; i < slots; i++) {
+            this.sequences.set(i, i);
+        }
+    }
+
+    @Override
+    public boolean add(T value) {
+        if (value == null) {
+            throw new NullPointerException("Buffer does not accept null values");
+        }
+        long position = this.tail.get();
+        for (;;) {
+            final int index = (int) position & this.mask;
+            final long difference = this.sequences.get(index) - position;
+            if (difference == 0) {
+                if (position - this.head.get() >= this.capacity) {
+                    return false;
+                }
+                if (this.tail.compareAndSet(position, position + 1)) {
+                    this.values.lazySet(index, value);
+                    this.sequences.set(index, position + 1);
+                    return true;
+                }
+                position = this.tail.get();
+            } else if (difference < 0) {
+                return false;
+            } else {
+                position = this.tail.get();
+            }
+        }
+    }
+
+    @Override
+    public T poll() {
+        long position = this.head.get();
+        for (;;) {
+            final int index = (int) position & this.mask;
+            final long difference = this.sequences.get(index) - (position + 1);
+            if (difference == 0) {
+                if (this.head.compareAndSet(position, position + 1)) {
+                    final T value = this.values.get(index);
+                    this.values.lazySet(index, null);
+                    this.sequences.set(index, position + this.mask + 1);
+                    return value;
+                }
+                position = this.head.get();
+            } else if (difference < 0) {
+                return null;
+            } else {
+                position = this.head.get();
+            }
+        }
+    }
+
+    @Override
+    public Optional<T> remove() {
+        return Optional.ofNullable(poll());
+    }
+
+    @Override
+    public boolean isFull() {
+        return size() >= this.capacity;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return this.tail.get() == this.head.get();
+    }
+
+    @Override
+    public int size() {
+        final long size = this.tail.get() - this.head.get();
+        return (int) Math.max(0, Math.min(size, this.capacity));
+    }
+
+    @Override
+    public int remainingCapacity() {
+        return this.capacity - size();
+    }
+
+    /**
+     * Max number of values this buffer is able to hold.
+     * @return capacity
+     */
+    public int capacity() {
+        return this.capacity;
+    }
+}
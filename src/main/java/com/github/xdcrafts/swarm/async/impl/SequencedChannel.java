@@ -0,0 +1,606 @@
+package com.github.xdcrafts.swarm.async.impl;
+
+import com.github.xdcrafts.swarm.async.AsyncException;
+import com.github.xdcrafts.swarm.async.IChannel;
+import com.github.xdcrafts.swarm.util.HashedWheelTimer;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BooleanSupplier;
+import java.util.function.Supplier;
+
+import static com.github.xdcrafts.swarm.util.FutureUtils.TIMEOUT_TIMER;
+
+/**
+ * Low latency channel with single consumer, Disruptor style. Values are evaluated on put and published
+ * into preallocated ring of slots, producers claim slots by sequence, consumer follows its own sequence,
+ * so neither put nor take allocates futures or takes locks when channel has room or values.
+ * Put to full channel parks request that is published, in order, once consumer frees slot, or fails
+ * after put timeout, puts that come while some put is parked park behind it, so single producer
+ * stays single. Take of empty channel parks single take that is completed directly by producer
+ * that publishes next value, on producer thread, without executor hand-off.
+ * Blocking take and put wait with wait strategy, which is the fastest hand-off for dedicated threads.
+ * Values must be taken by one consumer at a time, e.g. single take loop, take requests do not queue.
+ * Producer that completes parked take consumes on behalf of consumer, so consumer side is guarded by claim.
+ * Values that are left in channel on close can still be taken, parked puts and take are failed.
+ * @param <T> value type
+ */
+public final class SequencedChannel<T> implements IChannel<T, T> {
+
+    /**
+     * How producers claim slots.
+     */
+    public enum Sequencing {
+        /**
+         * Single producer, slot is claimed without compare-and-set.
+         */
+        SPSC,
+        /**
+         * Many producers, slot is claimed with compare-and-set.
+         */
+        MPSC
+    }
+
+    /**
+     * How threads wait for slot or value.
+     */
+    public enum WaitStrategy {
+        /**
+         * Spins without yielding, lowest latency, burns the core. Spin-wait hint is used on Java 21 only.
+         */
+        BUSY_SPIN,
+        /**
+         * Spins, then yields.
+         */
+        YIELD,
+        /**
+         * Spins, yields, then parks with exponential backoff up to a millisecond.
+         */
+        PARK,
+        /**
+         * Spins, then waits on condition, signalled by counterpart. Costs lock on every hand-off while somebody waits.
+         */
+        BLOCKING
+    }
+
+    /**
+     * Builder API for sequenced channel.
+     * @param <T> value type
+     */
+    public static final class SequencedChannelBuilder<T> implements Supplier<SequencedChannel<T>> {
+        private volatile int capacity = 1024;
+        private volatile Sequencing sequencing = Sequencing.MPSC;
+        private volatile WaitStrategy waitStrategy = WaitStrategy.PARK;
+        private volatile Duration takeDuration = Duration.ofSeconds(1);
+        private volatile Duration putDuration = Duration.ofSeconds(1);
+        /**
+         * Setup capacity.
+         * @param n number of slots
+         * @return this builder instance
+         */
+        public SequencedChannelBuilder<T> withCapacity(int n) {
+            this.capacity = n;
+            return this;
+        }
+        /**
+         * Setup sequencing.
+         * @param s sequencing
+         * @return this builder instance
+         */
+        public SequencedChannelBuilder<T> withSequencing(Sequencing s) {
+            this.sequencing = s;
+            return this;
+        }
+        /**
+         * Setup wait strategy.
+         * @param w wait strategy
+         * @return this builder instance
+         */
+        public SequencedChannelBuilder<T> withWaitStrategy(WaitStrategy w) {
+            this.waitStrategy = w;
+            return this;
+        }
+        /**
+         * Setup take timeout.
+         * @param timeout take timeout duration
+         * @return this builder instance
+         */
+        public SequencedChannelBuilder<T> withTakeTimeout(Duration timeout) {
+            this.takeDuration = timeout;
+            return this;
+        }
+        /**
+         * Setup put timeout.
+         * @param timeout put timeout duration
+         * @return this builder instance
+         */
+        public SequencedChannelBuilder<T> withPutTimeout(Duration timeout) {
+            this.putDuration = timeout;
+            return this;
+        }
+        @Override
+        public SequencedChannel<T> get() {
+            return new SequencedChannel<>(
+                this.capacity, this.sequencing, this.waitStrategy, this.takeDuration, this.putDuration
+            );
+        }
+    }
+
+    /**
+     * Creates new sequenced channel builder.
+     * @param <T> channel values type
+     * @return new channel builder
+     */
+    public static <T> SequencedChannelBuilder<T> sequenced() {
+        return new SequencedChannelBuilder<>();
+    }
+
+    private static final long MAX_BACKOFF_NANOS = 1_000_000;
+
+    private final int capacity;
+    private final int mask;
+    private final boolean isSingleProducer;
+    private final WaitStrategy waitStrategy;
+    private final Duration takeTimeout;
+    private final Duration putTimeout;
+
+    /**
+     * Slot is published by volatile write of non null value, so that producer that publishes
+     * and consumer that parks take never miss each other.
+     */
+    private final AtomicReferenceArray<T> slots;
+    /**
+     * Next sequence to claim.
+     */
+    private final AtomicLong tail = new AtomicLong();
+    /**
+     * Next sequence to consume, slot is cleared before head moves.
+     */
+    private final AtomicLong head = new AtomicLong();
+    /**
+     * Last seen head, used by single producer only.
+     */
+    private long headCache = 0;
+
+    private final AtomicReference<CompletableFuture<T>> pendingTake = new AtomicReference<>();
+    /**
+     * Value that was taken for take request cancelled by its caller, it is returned by next take.
+     */
+    private volatile T stash;
+    /**
+     * Claim of consumer side, head and stash are changed only by thread that holds it.
+     */
+    private final AtomicBoolean consuming = new AtomicBoolean();
+
+    /**
+     * Puts that wait for free slot, published by whoever runs publish loop.
+     */
+    private final ConcurrentLinkedQueue<ParkedPut> parkedPuts = new ConcurrentLinkedQueue<>();
+    /**
+     * Work-in-progress counter of publish loop of parked puts.
+     */
+    private final AtomicInteger publishWip = new AtomicInteger();
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition condition = this.lock.newCondition();
+    private final AtomicInteger waiters = new AtomicInteger();
+
+    private volatile boolean isClosed = false;
+
+    private SequencedChannel(
+        int capacity, Sequencing sequencing, WaitStrategy waitStrategy, Duration takeTimeout, Duration putTimeout
+    ) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Buffer capacity must be greater then zero");
+        }
+        if (capacity > 1 << 30) {
+            throw new IllegalArgumentException("Buffer capacity must be less or equal to 2^30");
+        }
+        final int size = capacity == 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+        this.capacity = capacity;
+        this.mask = size - 1;
+        this.slots = new AtomicReferenceArray<>(size);
+        this.isSingleProducer = sequencing == Sequencing.SPSC;
+        this.waitStrategy = waitStrategy;
+        this.takeTimeout = takeTimeout;
+        this.putTimeout = putTimeout;
+    }
+
+    /**
+     * Number of values in channel.
+     * @return size
+     */
+    public int size() {
+        final long size = this.tail.get() - this.head.get();
+        return (int) Math.max(0, Math.min(size, this.capacity));
+    }
+
+    @Override
+    public void close() {
+        this.isClosed = true;
+        wakeTake();
+        final CompletableFuture<T> take = this.pendingTake.getAndSet(null);
+        if (take != null) {
+            take.completeExceptionally(new AsyncException("Channel is closed."));
+        }
+        publishParked();
+        signal();
+    }
+
+    @Override
+    public boolean isClosed() {
+        return this.isClosed;
+    }
+
+    /**
+     * Takes value that is ready, returns null if there is none or producer is completing parked take right now.
+     * Values that are left in closed channel can still be taken.
+     */
+    @Override
+    public T poll() {
+        if (!this.consuming.compareAndSet(false, true)) {
+            return null;
+        }
+        try {
+            return consume();
+        } finally {
+            this.consuming.set(false);
+            if (this.pendingTake.get() != null) {
+                wakeTake();
+            }
+        }
+    }
+
+    /**
+     * Takes stashed value or value of head slot, caller holds consumer claim.
+     */
+    private T consume() {
+        final T stashed = this.stash;
+        if (stashed != null) {
+            this.stash = null;
+            return stashed;
+        }
+        final long sequence = this.head.get();
+        final int index = (int) sequence & this.mask;
+        final T value = this.slots.get(index);
+        if (value == null) {
+            return null;
+        }
+        this.slots.lazySet(index, null);
+        this.head.lazySet(sequence + 1);
+        if (!this.parkedPuts.isEmpty()) {
+            publishParked();
+        }
+        signal();
+        return value;
+    }
+
+    @Override
+    public CompletableFuture<T> take() {
+        final T value = poll();
+        if (value != null) {
+            return CompletableFuture.completedFuture(value);
+        }
+        final CompletableFuture<T> take = new CompletableFuture<>();
+        if (this.isClosed) {
+            take.completeExceptionally(new AsyncException("Channel is closed."));
+            return take;
+        }
+        if (!this.pendingTake.compareAndSet(null, take)) {
+            take.completeExceptionally(new AsyncException("Take queue is full."));
+            return take;
+        }
+        final HashedWheelTimer.Timeout timeout = TIMEOUT_TIMER.schedule(() -> {
+                if (this.pendingTake.compareAndSet(take, null)) {
+                    take.completeExceptionally(new TimeoutException("Timeout after " + this.takeTimeout));
+                }
+            }, this.takeTimeout);
+        take.whenComplete((res, err) -> timeout.cancel());
+        wakeTake();
+        if (this.isClosed && this.pendingTake.compareAndSet(take, null)) {
+            take.completeExceptionally(new AsyncException("Channel is closed."));
+        }
+        return take;
+    }
+
+    @Override
+    public CompletableFuture<List<T>> takeBatch(int max) {
+        if (max < 1) {
+            throw new IllegalArgumentException("Batch size must be greater then zero");
+        }
+        final List<T> values = new ArrayList<>(Math.min(max, 64));
+        if (drainTo(values, max) > 0) {
+            return CompletableFuture.completedFuture(values);
+        }
+        return take().thenApply(value -> {
+                values.add(value);
+                drainTo(values, max - 1);
+                return values;
+            });
+    }
+
+    @Override
+    public int drainTo(Collection<? super T> target, int max) {
+        int drained = 0;
+        T value;
+        while (drained < max && (value = poll()) != null) {
+            target.add(value);
+            drained++;
+        }
+        return drained;
+    }
+
+    @Override
+    public T takeBlocking(Duration timeout) throws InterruptedException, TimeoutException {
+        final T value = poll();
+        if (value != null) {
+            return value;
+        }
+        final long deadline = System.nanoTime() + timeout.toNanos();
+        final Object[] taken = new Object[1];
+        final boolean isTaken = await(() -> (taken[0] = poll()) != null || this.isClosed, deadline);
+        if (taken[0] == null && this.isClosed) {
+            throw new AsyncException("Channel is closed.");
+        }
+        if (!isTaken) {
+            throw new TimeoutException("Timeout after " + timeout);
+        }
+        @SuppressWarnings("unchecked")
+        final T result = (T) taken[0];
+        return result;
+    }
+
+    @Override
+    public boolean offer(Supplier<T> value) {
+        return !this.isClosed && publishNext(valueOf(value));
+    }
+
+    @Override
+    public CompletableFuture<Optional<Supplier<T>>> put(Supplier<T> value) {
+        final CompletableFuture<Optional<Supplier<T>>> putRequest = new CompletableFuture<>();
+        if (this.isClosed) {
+            putRequest.completeExceptionally(new AsyncException("Channel is closed."));
+            return putRequest;
+        }
+        final T evaluated;
+        try {
+            evaluated = valueOf(value);
+        } catch (RuntimeException e) {
+            putRequest.completeExceptionally(e);
+            return putRequest;
+        }
+        if (publishNext(evaluated)) {
+            putRequest.complete(Optional.of(value));
+            return putRequest;
+        }
+        this.parkedPuts.offer(new ParkedPut(value, evaluated, putRequest));
+        publishParked();
+        return putRequest;
+    }
+
+    @Override
+    public boolean putBlocking(Supplier<T> value, Duration timeout) throws InterruptedException, TimeoutException {
+        if (this.isClosed) {
+            throw new AsyncException("Channel is closed.");
+        }
+        putBlocking(value, valueOf(value), timeout);
+        return true;
+    }
+
+    private Supplier<T> putBlocking(Supplier<T> valueSupplier, T value, Duration timeout)
+        throws InterruptedException, TimeoutException {
+        if (publishNext(value)) {
+            return valueSupplier;
+        }
+        final long deadline = System.nanoTime() + timeout.toNanos();
+        final boolean isPublished = await(() -> this.isClosed || publishNext(value), deadline);
+        if (this.isClosed) {
+            throw new AsyncException("Channel is closed.");
+        }
+        if (!isPublished) {
+            throw new TimeoutException("Timeout after " + timeout);
+        }
+        return valueSupplier;
+    }
+
+    private static <T> T valueOf(Supplier<T> valueSupplier) {
+        final T value = valueSupplier.get();
+        if (value == null) {
+            throw new NullPointerException("Channel does not accept null values");
+        }
+        return value;
+    }
+
+    /**
+     * Put that waits for free slot. Publish loop claims it before publishing and timeout claims it
+     * before failing it, so put is never published and timed out at once.
+     */
+    private final class ParkedPut {
+        final Supplier<T> supplier;
+        final T value;
+        final CompletableFuture<Optional<Supplier<T>>> requestFuture;
+        final AtomicBoolean isClaimed = new AtomicBoolean();
+        ParkedPut(Supplier<T> supplier, T value, CompletableFuture<Optional<Supplier<T>>> requestFuture) {
+            this.supplier = supplier;
+            this.value = value;
+            this.requestFuture = requestFuture;
+            final HashedWheelTimer.Timeout timeout = TIMEOUT_TIMER.schedule(() -> {
+                    if (this.isClaimed.compareAndSet(false, true)) {
+                        requestFuture.completeExceptionally(
+                            new TimeoutException("Timeout after " + SequencedChannel.this.putTimeout)
+                        );
+                    }
+                }, SequencedChannel.this.putTimeout);
+            requestFuture.whenComplete((res, err) -> timeout.cancel());
+        }
+    }
+
+    /**
+     * Publishes value unless some put is parked, parked puts go first.
+     */
+    private boolean publishNext(T value) {
+        return this.parkedPuts.isEmpty() && publish(value);
+    }
+
+    /**
+     * Publishes parked puts in order while there are free slots. Only one thread at a time runs the loop,
+     * it publishes only while queue is not empty, so it never races with single producer.
+     */
+    private void publishParked() {
+        if (this.publishWip.getAndIncrement() != 0) {
+            return;
+        }
+        int missed = 1;
+        do {
+            ParkedPut parked;
+            while ((parked = this.parkedPuts.peek()) != null) {
+                if (parked.isClaimed.compareAndSet(false, true)) {
+                    if (this.isClosed) {
+                        parked.requestFuture.completeExceptionally(new AsyncException("Channel is closed."));
+                    } else if (publish(parked.value)) {
+                        parked.requestFuture.complete(Optional.of(parked.supplier));
+                    } else {
+                        parked.isClaimed.set(false);
+                        break;
+                    }
+                }
+                this.parkedPuts.poll();
+            }
+            missed = this.publishWip.addAndGet(-missed);
+        } while (missed != 0);
+    }
+
+    /**
+     * Claims next slot and publishes value to it, wakes consumer.
+     */
+    private boolean publish(T value) {
+        final long sequence;
+        if (this.isSingleProducer) {
+            sequence = this.tail.get();
+            if (sequence - this.headCache >= this.capacity) {
+                this.headCache = this.head.get();
+                if (sequence - this.headCache >= this.capacity) {
+                    return false;
+                }
+            }
+            this.tail.lazySet(sequence + 1);
+        } else {
+            for (;;) {
+                final long claimed = this.tail.get();
+                if (claimed - this.head.get() >= this.capacity) {
+                    return false;
+                }
+                if (this.tail.compareAndSet(claimed, claimed + 1)) {
+                    sequence = claimed;
+                    break;
+                }
+            }
+        }
+        this.slots.set((int) sequence & this.mask, value);
+        wakeTake();
+        signal();
+        return true;
+    }
+
+    /**
+     * Completes parked take with next value, if there is one. Producer consumes for parked take holding
+     * consumer claim, if claim is held by somebody else, they wake parked take once they release claim.
+     * If value is not published yet, because producer with lower sequence is still writing, take is parked
+     * back and that producer completes it.
+     */
+    private void wakeTake() {
+        while (this.pendingTake.get() != null && isReady() && this.consuming.compareAndSet(false, true)) {
+            try {
+                final CompletableFuture<T> take = this.pendingTake.getAndSet(null);
+                if (take == null) {
+                    continue;
+                }
+                final T value = consume();
+                if (value == null) {
+                    if (!this.pendingTake.compareAndSet(null, take)) {
+                        take.completeExceptionally(new AsyncException("Take queue is full."));
+                    }
+                    continue;
+                }
+                if (!take.complete(value)) {
+                    this.stash = value;
+                }
+            } finally {
+                this.consuming.set(false);
+            }
+        }
+    }
+
+    private boolean isReady() {
+        return this.stash != null || this.slots.get((int) this.head.get() & this.mask) != null;
+    }
+
+    /**
+     * Wakes threads that wait on condition, only blocking wait strategy needs it.
+     */
+    private void signal() {
+        if (this.waitStrategy == WaitStrategy.BLOCKING && this.waiters.get() > 0) {
+            this.lock.lock();
+            try {
+                this.condition.signalAll();
+            } finally {
+                this.lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Waits with wait strategy till condition is met or deadline passes.
+     */
+    private boolean await(BooleanSupplier condition, long deadline) throws InterruptedException {
+        long backoff = 1000;
+        for (int attempt = 0; !condition.getAsBoolean(); attempt++) {
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+            final long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                return false;
+            }
+            if (this.waitStrategy == WaitStrategy.BUSY_SPIN) {
+                Parking.busySpin();
+            } else if (attempt < Parking.spins()) {
+                Parking.onSpinWait();
+            } else if (this.waitStrategy == WaitStrategy.YIELD) {
+                Thread.yield();
+            } else if (this.waitStrategy == WaitStrategy.PARK) {
+                LockSupport.parkNanos(Math.min(remaining, backoff));
+                backoff = Math.min(backoff * 2, MAX_BACKOFF_NANOS);
+            } else {
+                this.lock.lock();
+                this.waiters.incrementAndGet();
+                try {
+                    if (!condition.getAsBoolean()) {
+                        // Consumer frees slots with ordered writes, so producers do not rely on signal alone
+                        this.condition.awaitNanos(Math.min(remaining, MAX_BACKOFF_NANOS));
+                    } else {
+                        return true;
+                    }
+                } finally {
+                    this.waiters.decrementAndGet();
+                    this.lock.unlock();
+                }
+            }
+        }
+        return true;
+    }
+}
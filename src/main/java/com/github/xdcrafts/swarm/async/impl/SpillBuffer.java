@@ -0,0 +1,204 @@
+package com.github.xdcrafts.swarm.async.impl;
+
+import com.github.xdcrafts.swarm.async.IBuffer;
+import com.github.xdcrafts.swarm.async.ICodec;
+
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Optional;
+
+/**
+ * Buffer that keeps bounded head in memory and spills the rest to disk. Once memory head is full,
+ * values are encoded with codec and appended to memory-mapped segment files, and they are read back
+ * in FIFO order after memory head is drained. Drained segments are recycled for next spills.
+ * Segment files are unlinked right after they are mapped, so they never outlive the process and
+ * disk space is released once segment is garbage collected.
+ * Full only when disk limit is reached. Operations are serialized with buffer monitor.
+ * @param <T> value type
+ */
+public class SpillBuffer<T> implements IBuffer<T> {
+
+    private static final int DEFAULT_SEGMENT_SIZE = 16 * 1024 * 1024;
+    private static final int MAX_POOLED_SEGMENTS = 2;
+    private static final int RECORD_HEADER_SIZE = 4;
+
+    /**
+     * Memory-mapped segment file, records are length prefixed.
+     */
+    private static final class Segment {
+        final MappedByteBuffer buffer;
+        ByteBuffer reader;
+        int written;
+        int read;
+        Segment(MappedByteBuffer buffer) {
+            this.buffer = buffer;
+            this.reader = buffer.duplicate();
+        }
+        void reset() {
+            ((Buffer) this.buffer).clear();
+            this.reader = this.buffer.duplicate();
+            this.written = 0;
+            this.read = 0;
+        }
+    }
+
+    private final int memoryCapacity;
+    private final Path directory;
+    private final ICodec<T> codec;
+    private final int segmentSize;
+    private final long maxDiskBytes;
+
+    private final ArrayDeque<T> memory;
+    private final ArrayDeque<Segment> segments = new ArrayDeque<>();
+    private final ArrayDeque<Segment> pool = new ArrayDeque<>();
+
+    private volatile int size = 0;
+    private volatile int spilled = 0;
+    private volatile long diskBytes = 0;
+
+    public SpillBuffer(int memoryCapacity, Path directory, ICodec<T> codec) {
+        this(memoryCapacity, directory, codec, DEFAULT_SEGMENT_SIZE, Long.MAX_VALUE);
+    }
+
+    public SpillBuffer(int memoryCapacity, Path directory, ICodec<T> codec, int segmentSize, long maxDiskBytes) {
+        if (memoryCapacity < 1) {
+            throw new IllegalArgumentException("Buffer capacity must be greater then zero");
+        }
+        if (segmentSize <= RECORD_HEADER_SIZE) {
+            throw new IllegalArgumentException("Segment size must be greater then record header size");
+        }
+        this.memoryCapacity = memoryCapacity;
+        this.directory = directory;
+        this.codec = codec;
+        this.segmentSize = segmentSize;
+        this.maxDiskBytes = maxDiskBytes;
+        this.memory = new ArrayDeque<>(Math.min(memoryCapacity, 1024));
+    }
+
+    /**
+     * Adds value, returns false if disk limit is reached or segment file could not be created.
+     */
+    @Override
+    public synchronized boolean add(T value) {
+        if (value == null) {
+            throw new NullPointerException("Buffer does not accept null values");
+        }
+        if (this.segments.isEmpty() && this.memory.size() < this.memoryCapacity) {
+            this.memory.offer(value);
+            this.size++;
+            return true;
+        }
+        final byte[] bytes = this.codec.encode(value);
+        final int recordSize = RECORD_HEADER_SIZE + bytes.length;
+        if (this.diskBytes + recordSize > this.maxDiskBytes) {
+            return false;
+        }
+        Segment segment = this.segments.peekLast();
+        if (segment == null || segment.buffer.remaining() < recordSize) {
+            try {
+                segment = segment(recordSize);
+            } catch (IOException e) {
+                return false;
+            }
+            this.segments.offer(segment);
+        }
+        segment.buffer.putInt(bytes.length);
+        segment.buffer.put(bytes);
+        segment.written++;
+        this.diskBytes += recordSize;
+        this.spilled++;
+        this.size++;
+        return true;
+    }
+
+    @Override
+    public synchronized T poll() {
+        final T value = this.memory.poll();
+        if (value != null) {
+            this.size--;
+            return value;
+        }
+        final Segment segment = this.segments.peek();
+        if (segment == null) {
+            return null;
+        }
+        final ByteBuffer reader = segment.reader;
+        final int length = reader.getInt();
+        final ByteBuffer record = reader.slice();
+        ((Buffer) record).limit(length);
+        ((Buffer) reader).position(reader.position() + length);
+        segment.read++;
+        this.diskBytes -= RECORD_HEADER_SIZE + length;
+        this.spilled--;
+        this.size--;
+        // Record stays valid while monitor is held, even if its segment goes to pool
+        if (segment.read == segment.written) {
+            this.segments.poll();
+            recycle(segment);
+        }
+        return this.codec.decode(record);
+    }
+
+    @Override
+    public Optional<T> remove() {
+        return Optional.ofNullable(poll());
+    }
+
+    @Override
+    public boolean isFull() {
+        return this.diskBytes >= this.maxDiskBytes;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return this.size == 0;
+    }
+
+    @Override
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * Number of values that are on disk now.
+     * @return spilled values count
+     */
+    public int spilledCount() {
+        return this.spilled;
+    }
+
+    /**
+     * Number of bytes that spilled values take on disk.
+     * @return bytes
+     */
+    public long diskBytes() {
+        return this.diskBytes;
+    }
+
+    private Segment segment(int recordSize) throws IOException {
+        if (recordSize <= this.segmentSize && !this.pool.isEmpty()) {
+            return this.pool.poll();
+        }
+        final int capacity = Math.max(this.segmentSize, recordSize);
+        final Path file = Files.createTempFile(this.directory, "swarm-spill-", ".segment");
+        try (FileChannel channel = FileChannel.open(
+            file, StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.DELETE_ON_CLOSE
+        )) {
+            return new Segment(channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity));
+        }
+    }
+
+    private void recycle(Segment segment) {
+        if (segment.buffer.capacity() == this.segmentSize && this.pool.size() < MAX_POOLED_SEGMENTS) {
+            segment.reset();
+            this.pool.offer(segment);
+        }
+    }
+}
@@ -17,23 +17,25 @@ import static com.github.xdcrafts.swarm.transducers.Transducers.reducer;
  */
 public final class Implementations {
 
+    private static final ITransducer<Object, Object> ID = new ITransducer<Object, Object>() {
+        @Override
+        public <T> IReducer<T, Object> apply(IReducer<T, Object> reducer) {
+            return reducer;
+        }
+    };
+
     private Implementations() {
         // Nothing
     }
 
     /**
-     * Creates a transducer that transforms a reducing function by applying a mapping
-     * function to each input.
+     * Identity transducer, returns reducing function as is. Returned instance is shared.
      * @param <A> type
      * @return transducer
      */
+    @SuppressWarnings("unchecked")
     public static <A> ITransducer<A, A> id() {
-        return new ITransducer<A, A>() {
-            @Override
-            public <T> IReducer<T, A> apply(IReducer<T, A> reducer) {
-                return reducer;
-            }
-        };
+        return (ITransducer<A, A>) ID;
     }
 
     /**
@@ -6,9 +6,7 @@ import java.util.List;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
-import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
-import java.util.function.Function;
 import java.util.function.Supplier;
 
 import static java.util.concurrent.CompletableFuture.allOf;
@@ -69,6 +67,11 @@ public final class FutureUtils {
         }
     }
 
+    /**
+     * Scheduler that was used for timeouts before they were moved to {@link #TIMEOUT_TIMER}.
+     * @deprecated use {@link #TIMEOUT_TIMER}
+     */
+    @Deprecated
     public static final Supplier<ScheduledExecutorService> TIMEOUT_SCHEDULER = LangUtils.lazy(() ->
         new ScheduledThreadPoolExecutor(
             1,
@@ -80,6 +83,17 @@ public final class FutureUtils {
         )
     );
 
+    /**
+     * Shared timer for timeouts, 10 milliseconds precision, so idle worker wakes up 100 times a second at most
+     * and timeout fires up to one tick late, never early. It can not be stopped.
+     * Almost every timeout is cancelled because its request completes in time. Cancel only releases the task,
+     * so request and its future are not held, and leaves empty timeout in its bucket, worker unlinks it
+     * when it passes the bucket, within one revolution of 5 seconds. This keeps cancel a single CAS
+     * without queueing every cancelled timeout to worker thread, at the cost of empty timeouts that
+     * live for a revolution at most.
+     */
+    public static final HashedWheelTimer TIMEOUT_TIMER = new HashedWheelTimer(Duration.ofMillis(10), 512, true);
+
     /**
      * Creates new timeout future that completes exceptionally after duration.
      * @param <T> value type
@@ -87,12 +101,24 @@ public final class FutureUtils {
      * @return completable future that completes after duration timeout
      */
     public static <T> CompletableFuture<T> timeout(Duration duration) {
+        return timeout(duration, TIMEOUT_TIMER);
+    }
+
+    /**
+     * Creates new timeout future that completes exceptionally after duration. If future is completed
+     * earlier by someone else, timer task is cancelled.
+     * @param <T> value type
+     * @param duration timeout
+     * @param timer timer to schedule timeout with
+     * @return completable future that completes after duration timeout
+     */
+    public static <T> CompletableFuture<T> timeout(Duration duration, HashedWheelTimer timer) {
         final CompletableFuture<T> promise = new CompletableFuture<>();
-        TIMEOUT_SCHEDULER.get().schedule(
+        final HashedWheelTimer.Timeout timeout = timer.schedule(
             () -> promise.completeExceptionally(new TimeoutException("Timeout after " + duration)),
-            duration.toMillis(),
-            TimeUnit.MILLISECONDS
+            duration
         );
+        promise.whenComplete((res, err) -> timeout.cancel());
         return promise;
     }
 
@@ -104,7 +130,60 @@ public final class FutureUtils {
      * @return completable future that completes either with result of type T or with timeout.
      */
     public static <T> CompletableFuture<T> within(CompletableFuture<T> future, Duration duration) {
-        final CompletableFuture<T> timeout = timeout(duration);
-        return future.applyToEither(timeout, Function.identity());
+        return within(future, duration, TIMEOUT_TIMER);
+    }
+
+    /**
+     * Returns new future that returns with timeout exception if not done within timeout duration.
+     * Timer task is cancelled as soon as returned future completes.
+     * @param <T> value type
+     * @param future completable future
+     * @param duration timeout duration
+     * @param timer timer to schedule timeout with
+     * @return completable future that completes either with result of type T or with timeout.
+     */
+    public static <T> CompletableFuture<T> within(
+        CompletableFuture<T> future, Duration duration, HashedWheelTimer timer
+    ) {
+        final CompletableFuture<T> result = new CompletableFuture<>();
+        final HashedWheelTimer.Timeout timeout = timer.schedule(
+            () -> result.completeExceptionally(new TimeoutException("Timeout after " + duration)),
+            duration
+        );
+        result.whenComplete((res, err) -> timeout.cancel());
+        future.whenComplete((res, err) -> {
+                if (err != null) {
+                    result.completeExceptionally(err);
+                } else {
+                    result.complete(res);
+                }
+            });
+        return result;
+    }
+
+    /**
+     * Returns new future that completes with fallback value if not done within timeout duration.
+     * Timer task is cancelled as soon as returned future completes.
+     * @param <T> value type
+     * @param future completable future
+     * @param duration timeout duration
+     * @param fallback supplier of value to complete with after timeout
+     * @return completable future that completes either with result of type T or with fallback value.
+     */
+    public static <T> CompletableFuture<T> within(CompletableFuture<T> future, Duration duration, Supplier<T> fallback) {
+        final CompletableFuture<T> result = new CompletableFuture<>();
+        final HashedWheelTimer.Timeout timeout = TIMEOUT_TIMER.schedule(
+            () -> completeSafely(result, fallback),
+            duration
+        );
+        result.whenComplete((res, err) -> timeout.cancel());
+        future.whenComplete((res, err) -> {
+                if (err != null) {
+                    result.completeExceptionally(err);
+                } else {
+                    result.complete(res);
+                }
+            });
+        return result;
     }
 }
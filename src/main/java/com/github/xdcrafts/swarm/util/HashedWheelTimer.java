@@ -0,0 +1,249 @@
+package com.github.xdcrafts.swarm.util;
+
+import java.time.Duration;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Hashed wheel timer. Schedules tasks into wheel of buckets, each bucket covers one tick,
+ * so both schedule and cancel are O(1). Single daemon worker thread advances the wheel
+ * every tick and runs expired tasks, it is started lazily and parks while there is nothing to do.
+ * Precision is limited by tick duration.
+ */
+public final class HashedWheelTimer {
+
+    /**
+     * Handle of scheduled task.
+     */
+    public static final class Timeout {
+
+        private static final int INIT = 0;
+        private static final int CANCELLED = 1;
+        private static final int EXPIRED = 2;
+
+        private static final AtomicIntegerFieldUpdater<Timeout> STATE =
+            AtomicIntegerFieldUpdater.newUpdater(Timeout.class, "state");
+
+        private volatile Runnable task;
+        private volatile int state = INIT;
+        private final long deadline;
+
+        // Following fields are owned by worker thread
+        private long remainingRounds;
+        private Timeout next;
+        private Timeout prev;
+
+        private Timeout(Runnable task, long deadline) {
+            this.task = task;
+            this.deadline = deadline;
+        }
+
+        /**
+         * Cancels task if it is not expired yet. Cancelled timeout releases its task right away
+         * and is unlinked from the wheel when worker passes its bucket.
+         * @return true if task will not be run
+         */
+        public boolean cancel() {
+            if (STATE.compareAndSet(this, INIT, CANCELLED)) {
+                this.task = null;
+                return true;
+            }
+            return this.state == CANCELLED;
+        }
+
+        public boolean isCancelled() {
+            return this.state == CANCELLED;
+        }
+
+        public boolean isExpired() {
+            return this.state == EXPIRED;
+        }
+
+        private void expire() {
+            if (STATE.compareAndSet(this, INIT, EXPIRED)) {
+                final Runnable runnable = this.task;
+                this.task = null;
+                try {
+                    runnable.run();
+                } catch (Throwable t) {
+                    // Timer tasks must not kill worker thread
+                }
+            }
+        }
+    }
+
+    /**
+     * Doubly linked list of timeouts that belong to one tick of the wheel.
+     */
+    private static final class Bucket {
+        private Timeout head;
+        private Timeout tail;
+        void add(Timeout timeout) {
+            if (this.head == null) {
+                this.head = timeout;
+                this.tail = timeout;
+            } else {
+                this.tail.next = timeout;
+                timeout.prev = this.tail;
+                this.tail = timeout;
+            }
+        }
+        Timeout remove(Timeout timeout) {
+            final Timeout next = timeout.next;
+            if (timeout.prev != null) {
+                timeout.prev.next = next;
+            }
+            if (timeout.next != null) {
+                timeout.next.prev = timeout.prev;
+            }
+            if (timeout == this.head) {
+                this.head = next;
+            }
+            if (timeout == this.tail) {
+                this.tail = timeout.prev;
+            }
+            timeout.prev = null;
+            timeout.next = null;
+            return next;
+        }
+    }
+
+    private final long tickNanos;
+    private final Bucket[] wheel;
+    private final int mask;
+    private final long startTime = System.nanoTime();
+
+    private final ConcurrentLinkedQueue<Timeout> scheduled = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean isStarted = new AtomicBoolean();
+    private final Thread worker;
+    /**
+     * Shared timer can not be stopped, its users do not own it.
+     */
+    private final boolean isShared;
+
+    private volatile boolean isStopped = false;
+    private volatile boolean isIdle = false;
+
+    // Following fields are owned by worker thread
+    private long tick = 0;
+    private int size = 0;
+
+    /**
+     * Creates new timer.
+     * @param tickDuration duration of one tick, timer precision
+     * @param wheelSize number of buckets in wheel, rounded up to power of two
+     */
+    public HashedWheelTimer(Duration tickDuration, int wheelSize) {
+        this(tickDuration, wheelSize, false);
+    }
+
+    HashedWheelTimer(Duration tickDuration, int wheelSize, boolean isShared) {
+        if (tickDuration.isNegative() || tickDuration.isZero()) {
+            throw new IllegalArgumentException("Tick duration must be greater then zero");
+        }
+        if (wheelSize < 1 || wheelSize > 1 << 30) {
+            throw new IllegalArgumentException("Wheel size must be in range [1, 2^30]");
+        }
+        final int buckets = wheelSize == 1 ? 1 : Integer.highestOneBit(wheelSize - 1) << 1;
+        this.tickNanos = tickDuration.toNanos();
+        this.wheel = new Bucket[buckets];
+        for (int i = 0; i < buckets; i++) {
+            this.wheel[i] = new Bucket();
+        }
+        this.mask = buckets - 1;
+        this.worker = new Thread(this::work, "swarm-wheel-timer");
+        this.worker.setDaemon(true);
+        this.isShared = isShared;
+    }
+
+    /**
+     * Schedules task to run once after delay.
+     * @param task task to run on timer thread, must be short
+     * @param delay delay
+     * @return timeout handle
+     */
+    public Timeout schedule(Runnable task, Duration delay) {
+        if (this.isStopped) {
+            throw new IllegalStateException("Timer is stopped");
+        }
+        if (!this.isStarted.get() && this.isStarted.compareAndSet(false, true)) {
+            this.worker.start();
+        }
+        final Timeout timeout = new Timeout(task, System.nanoTime() + Math.max(0, delay.toNanos()) - this.startTime);
+        this.scheduled.offer(timeout);
+        if (this.isIdle) {
+            LockSupport.unpark(this.worker);
+        }
+        return timeout;
+    }
+
+    /**
+     * Stops worker thread, pending tasks are never run. Does nothing for shared timer,
+     * see {@link FutureUtils#TIMEOUT_TIMER}.
+     */
+    public void stop() {
+        if (this.isShared) {
+            return;
+        }
+        this.isStopped = true;
+        LockSupport.unpark(this.worker);
+    }
+
+    private void work() {
+        // Timer may be started long after it was created, wheel starts from current tick
+        this.tick = (System.nanoTime() - this.startTime) / this.tickNanos;
+        while (!this.isStopped) {
+            if (this.size == 0 && this.scheduled.isEmpty()) {
+                this.isIdle = true;
+                if (this.scheduled.isEmpty() && !this.isStopped) {
+                    LockSupport.park(this);
+                }
+                this.isIdle = false;
+                this.tick = Math.max(this.tick, (System.nanoTime() - this.startTime) / this.tickNanos);
+                continue;
+            }
+            final long tickDeadline = this.tickNanos * (this.tick + 1);
+            long sleep;
+            while ((sleep = tickDeadline - (System.nanoTime() - this.startTime)) > 0 && !this.isStopped) {
+                LockSupport.parkNanos(this, sleep);
+            }
+            transferScheduled();
+            expire(this.wheel[(int) (this.tick & this.mask)], tickDeadline);
+            this.tick++;
+        }
+    }
+
+    private void transferScheduled() {
+        Timeout timeout;
+        while ((timeout = this.scheduled.poll()) != null) {
+            if (timeout.isCancelled()) {
+                continue;
+            }
+            final long calculated = timeout.deadline / this.tickNanos;
+            timeout.remainingRounds = (calculated - this.tick) / this.wheel.length;
+            final long ticks = Math.max(calculated, this.tick);
+            this.wheel[(int) (ticks & this.mask)].add(timeout);
+            this.size++;
+        }
+    }
+
+    private void expire(Bucket bucket, long tickDeadline) {
+        Timeout timeout = bucket.head;
+        while (timeout != null) {
+            if (timeout.isCancelled()) {
+                timeout = bucket.remove(timeout);
+                this.size--;
+            } else if (timeout.remainingRounds <= 0 && timeout.deadline <= tickDeadline) {
+                final Timeout expired = timeout;
+                timeout = bucket.remove(timeout);
+                this.size--;
+                expired.expire();
+            } else {
+                timeout.remainingRounds--;
+                timeout = timeout.next;
+            }
+        }
+    }
+}
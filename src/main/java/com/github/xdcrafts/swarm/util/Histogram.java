@@ -0,0 +1,118 @@
+package com.github.xdcrafts.swarm.util;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free histogram of non-negative long values with log-linear buckets (HDR histogram style).
+ * Every power of two range is split into 32 linear sub-buckets, so recorded values are
+ * reported with relative error below 2%. Recording is wait-free and does not allocate.
+ */
+public final class Histogram {
+
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKETS = SUB_BUCKETS + (63 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    /**
+     * Records value, negative values are recorded as zero.
+     * @param value value
+     */
+    public void record(long value) {
+        final long v = Math.max(0, value);
+        this.counts.incrementAndGet(index(v));
+        this.count.increment();
+        this.sum.add(v);
+        this.max.accumulate(v);
+    }
+
+    /**
+     * Number of recorded values.
+     * @return count
+     */
+    public long count() {
+        return this.count.sum();
+    }
+
+    /**
+     * Max recorded value.
+     * @return max value
+     */
+    public long max() {
+        return this.max.get();
+    }
+
+    /**
+     * Mean of recorded values.
+     * @return mean value
+     */
+    public double mean() {
+        final long n = this.count.sum();
+        return n == 0 ? 0 : (double) this.sum.sum() / n;
+    }
+
+    /**
+     * Value at given percentile. Concurrent records may or may not be taken into account.
+     * @param percentile percentile in range [0, 100]
+     * @return value at percentile
+     */
+    public long percentile(double percentile) {
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            total += this.counts.get(i);
+        }
+        if (total == 0) {
+            return 0;
+        }
+        final long rank = Math.max(1, (long) Math.ceil(total * Math.min(100, Math.max(0, percentile)) / 100));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += this.counts.get(i);
+            if (seen >= rank) {
+                return Math.min(value(i), max());
+            }
+        }
+        return max();
+    }
+
+    /**
+     * Resets all counters. Values recorded concurrently with reset may be partially lost.
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            this.counts.set(i, 0);
+        }
+        this.count.reset();
+        this.sum.reset();
+        this.max.reset();
+    }
+
+    private static int index(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        final int exponent = 63 - Long.numberOfLeadingZeros(value);
+        final int shift = exponent - SUB_BUCKET_BITS;
+        final int subBucket = (int) (value >>> shift) - SUB_BUCKETS;
+        return SUB_BUCKETS + shift * SUB_BUCKETS + subBucket;
+    }
+
+    /**
+     * Middle of value range covered by bucket.
+     */
+    private static long value(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        final int shift = (index - SUB_BUCKETS) / SUB_BUCKETS;
+        final long subBucket = (index - SUB_BUCKETS) % SUB_BUCKETS;
+        final long lowest = (SUB_BUCKETS + subBucket) << shift;
+        return lowest + ((1L << shift) >> 1);
+    }
+}
@@ -0,0 +1,33 @@
+package com.github.xdcrafts.swarm.async.impl;
+
+/**
+ * Spin-then-park policy of threads blocked on channels.
+ * Virtual threads park right away, parking them only unmounts them from carrier thread.
+ */
+final class Parking {
+
+    private static final int SPINS = 64;
+
+    private Parking() {
+        // Nothing
+    }
+
+    /**
+     * Number of spins before current thread is parked.
+     * @return spins
+     */
+    static int spins() {
+        return Thread.currentThread().isVirtual() ? 0 : SPINS;
+    }
+
+    static void onSpinWait() {
+        Thread.onSpinWait();
+    }
+
+    /**
+     * Step of busy spin that never gives up the core.
+     */
+    static void busySpin() {
+        Thread.onSpinWait();
+    }
+}
@@ -1,21 +1,41 @@
 package com.github.xdcrafts.swarm.async;
 
 import com.github.xdcrafts.swarm.async.impl.Channel;
+import com.github.xdcrafts.swarm.async.impl.ChannelMetrics;
+import com.github.xdcrafts.swarm.async.impl.DroppingBuffer;
+import com.github.xdcrafts.swarm.async.impl.SlidingBuffer;
 import com.github.xdcrafts.swarm.javaz.trym.ITryM;
+import com.github.xdcrafts.swarm.transducers.ITransducer;
+import com.github.xdcrafts.swarm.transducers.Implementations;
+import com.github.xdcrafts.swarm.transducers.Transducers;
 import com.github.xdcrafts.swarm.util.LangUtils;
 import org.junit.Test;
 
+import java.lang.management.ManagementFactory;
 import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Consumer;
+import java.util.function.IntSupplier;
 import java.util.function.Supplier;
 
+import javax.management.ObjectName;
+
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 
 /**
  * Tests for async channels.
@@ -99,6 +119,24 @@ public class AsyncTest {
         tryToRun(() -> channel.take().get());
     }
 
+    @Test(expected = AsyncException.class)
+    public void parkedPutOnClosedChannelTest() throws Throwable {
+        final IChannel<String, String> channel = Channel.<String>channel().get();
+        channel.put(LangUtils.supply("value")); // goes to buffer
+        final CompletableFuture<Optional<Supplier<String>>> parked = channel.put(LangUtils.supply("value"));
+        channel.close();
+        assertEquals("value", channel.poll());
+        tryToRun(parked::get);
+    }
+
+    @Test(expected = AsyncException.class)
+    public void parkedTakeOnClosedChannelTest() throws Throwable {
+        final IChannel<String, String> channel = Channel.<String>channel().get();
+        final CompletableFuture<String> parked = channel.take();
+        channel.close();
+        tryToRun(parked::get);
+    }
+
     @Test(expected = AsyncException.class)
     public void putWithFullQueueChannelTest() throws Throwable {
         final IChannel<String, String> channel = Channel.<String>channel().withMaxPutRequests(1).get();
@@ -127,6 +165,58 @@ public class AsyncTest {
         assertEquals(10, values.size());
     }
 
+    @Test
+    public void takeLoopReadyValuesTest() throws InterruptedException, ExecutionException {
+        // Failing supplier reaches handler as failed take, loop goes on
+        final IChannel<Integer, Integer> failing = Channel.<Integer>channel().withCapacity(8).get();
+        failing.put(LangUtils.supply(1));
+        failing.put(() -> {
+                throw new IllegalStateException("broken");
+            });
+        failing.put(LangUtils.supply(2));
+        failing.put(LangUtils.supply(3));
+        final List<Integer> values = new ArrayList<>();
+        final List<Throwable> errors = new ArrayList<>();
+        Async.takeLoop(failing, (ITryM<Integer> result, Async.Completion completion) -> {
+                result.foreach(values::add);
+                result.foreachFailure(errors::add);
+                if (values.size() == 3) {
+                    completion.done();
+                }
+            }).await();
+        assertEquals(Arrays.asList(1, 2, 3), values);
+        assertEquals(1, errors.size());
+        assertEquals("broken", errors.get(0).getMessage());
+
+        // Loop that gets done takes no more values than it handles
+        final IChannel<Integer, Integer> ready = Channel.<Integer>channel().withCapacity(64).get();
+        for (int i = 0; i < 50; i++) {
+            assertTrue(ready.offer(LangUtils.supply(i)));
+        }
+        final List<Integer> firstTwo = new ArrayList<>();
+        Async.takeLoop(ready, takeN(2, firstTwo::add)).await();
+        assertEquals(Arrays.asList(0, 1), firstTwo);
+        assertEquals(48, ready.drainTo(new ArrayList<>(), 64));
+
+        // Handler that throws fails completion and leaves the rest of values in channel
+        final IChannel<Integer, Integer> rest = Channel.<Integer>channel().withCapacity(4).get();
+        rest.put(LangUtils.supply(1));
+        rest.put(LangUtils.supply(2));
+        rest.put(LangUtils.supply(3));
+        final Async.Completion thrown = Async.takeLoop(rest, (Integer value) -> {
+                if (value == 2) {
+                    throw new IllegalStateException("handler");
+                }
+            });
+        try {
+            thrown.await();
+            assertTrue(false);
+        } catch (ExecutionException e) {
+            assertEquals("handler", e.getCause().getMessage());
+        }
+        assertEquals(3, rest.poll().intValue());
+    }
+
     @Test
     public void pipeTest() throws InterruptedException, ExecutionException {
         final IChannel<Integer, Integer> integerChannel = Channel.<Integer>channel().get();
@@ -135,4 +225,643 @@ public class AsyncTest {
         integerChannel.put(LangUtils.supply(0));
         assertEquals("0", stringChannel.take().get());
     }
+
+    @Test
+    public void concurrentPutTakeTest() throws InterruptedException, ExecutionException {
+        final IChannel<Integer, Integer> channel = Channel.<Integer>channel()
+            .withCapacity(8)
+            .withTakeTimeout(Duration.ofSeconds(10))
+            .withPutTimeout(Duration.ofSeconds(10))
+            .get();
+        final int perProducer = 2000;
+        final List<CompletableFuture<Optional<Supplier<Integer>>>> puts = new ArrayList<>();
+        final List<CompletableFuture<Integer>> takes = new ArrayList<>();
+        final List<Thread> threads = new ArrayList<>();
+        for (int p = 0; p < 4; p++) {
+            final List<CompletableFuture<Optional<Supplier<Integer>>>> threadPuts = new ArrayList<>();
+            final List<CompletableFuture<Integer>> threadTakes = new ArrayList<>();
+            threads.add(new Thread(() -> {
+                    for (int i = 1; i <= perProducer; i++) {
+                        final int value = i;
+                        threadPuts.add(channel.put(() -> value));
+                    }
+                    synchronized (puts) {
+                        puts.addAll(threadPuts);
+                    }
+                }));
+            threads.add(new Thread(() -> {
+                    for (int i = 1; i <= perProducer; i++) {
+                        threadTakes.add(channel.take());
+                    }
+                    synchronized (takes) {
+                        takes.addAll(threadTakes);
+                    }
+                }));
+        }
+        threads.forEach(Thread::start);
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        long sum = 0;
+        for (CompletableFuture<Integer> take : takes) {
+            sum += take.get();
+        }
+        for (CompletableFuture<Optional<Supplier<Integer>>> put : puts) {
+            assertTrue(put.get().isPresent());
+        }
+        assertEquals(4L * perProducer * (perProducer + 1) / 2, sum);
+    }
+
+    @Test
+    public void slidingBufferTest() throws InterruptedException, ExecutionException {
+        final SlidingBuffer<Supplier<Integer>> buffer = new SlidingBuffer<>(2);
+        final IChannel<Integer, Integer> channel = Channel.<Integer>channel().withBuffer(buffer).get();
+        for (int i = 1; i <= 5; i++) {
+            assertTrue(channel.put(LangUtils.supply(i)).isDone());
+        }
+        assertEquals(3, buffer.droppedCount());
+        assertEquals(Integer.valueOf(4), channel.take().get());
+        assertEquals(Integer.valueOf(5), channel.take().get());
+    }
+
+    @Test
+    public void droppingBufferTest() throws InterruptedException, ExecutionException {
+        final DroppingBuffer<Supplier<Integer>> buffer = new DroppingBuffer<>(2);
+        final IChannel<Integer, Integer> channel = Channel.<Integer>channel().withBuffer(buffer).get();
+        for (int i = 1; i <= 5; i++) {
+            assertTrue(channel.put(LangUtils.supply(i)).isDone());
+        }
+        assertEquals(3, buffer.droppedCount());
+        assertEquals(Integer.valueOf(1), channel.take().get());
+        assertEquals(Integer.valueOf(2), channel.take().get());
+
+        final Channel<Integer, Integer> metered = Channel.<Integer>channel()
+            .withDroppingBuffer(1)
+            .withMetrics("droppingBufferTest")
+            .get();
+        assertTrue(metered.put(LangUtils.supply(1)).get().isPresent());
+        assertTrue(metered.put(LangUtils.supply(2)).get().isPresent());
+        assertEquals(1, metered.getMetrics().get().getDrops());
+        metered.close();
+    }
+
+    @Test
+    public void takeBatchTest() throws InterruptedException, ExecutionException {
+        final IChannel<Integer, Integer> channel = Channel.<Integer>channel().withCapacity(4).get();
+        final CompletableFuture<List<Integer>> parked = channel.takeBatch(10);
+        channel.put(LangUtils.supply(0));
+        assertEquals(1, parked.get().size());
+        final List<CompletableFuture<Optional<Supplier<Integer>>>> puts = new ArrayList<>();
+        for (int i = 1; i <= 6; i++) {
+            puts.add(channel.put(LangUtils.supply(i)));
+        }
+        assertFalse(puts.get(5).isDone());
+        final List<Integer> batch = channel.takeBatch(3).get();
+        assertEquals(Arrays.asList(1, 2, 3), batch);
+        assertTrue(puts.get(5).get().isPresent());
+        final List<Integer> drained = new ArrayList<>();
+        assertEquals(3, channel.drainTo(drained, 10));
+        assertEquals(Arrays.asList(4, 5, 6), drained);
+        assertEquals(0, channel.drainTo(drained, 10));
+    }
+
+    @Test
+    public void putAllTest() throws InterruptedException, ExecutionException {
+        final IChannel<Integer, Integer> channel = Channel.channel(
+            Implementations.<Supplier<Integer>>filter(supplier -> supplier.get() % 2 == 0)
+        ).withCapacity(4).get();
+        final List<Supplier<Integer>> values = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            values.add(LangUtils.supply(i));
+        }
+        final CompletableFuture<Integer> accepted = channel.putAll(values);
+        assertFalse(accepted.isDone());
+        final List<Integer> taken = new ArrayList<>();
+        while (taken.size() < 10) {
+            taken.addAll(channel.takeBatch(3).get());
+        }
+        assertEquals(Integer.valueOf(10), accepted.get());
+        assertEquals(Arrays.asList(0, 2, 4, 6, 8, 10, 12, 14, 16, 18), taken);
+    }
+
+    @Test
+    public void statefulTransducerAcrossPutsTest() throws InterruptedException, ExecutionException {
+        // Every put path shares state of stateful transducer
+        final IChannel<Integer, Integer> limited = Channel.channel(
+            Implementations.<Supplier<Integer>>take(2)
+        ).withCapacity(8).get();
+        assertTrue(limited.put(LangUtils.supply(1)).get().isPresent());
+        assertTrue(limited.put(LangUtils.supply(2)).get().isPresent());
+        assertFalse(limited.put(LangUtils.supply(3)).get().isPresent());
+        limited.offer(LangUtils.supply(4));
+        assertEquals(Integer.valueOf(0), limited.putAll(Arrays.asList(LangUtils.supply(5), LangUtils.supply(6))).get());
+        final List<Integer> passed = new ArrayList<>();
+        limited.drainTo(passed, 8);
+        assertEquals(Arrays.asList(1, 2), passed);
+    }
+
+    @Test
+    public void putAllTimeoutTest() throws InterruptedException, ExecutionException {
+        final IChannel<Integer, Integer> channel = Channel.<Integer>channel()
+            .withCapacity(2)
+            .withPutTimeout(Duration.ofMillis(10))
+            .get();
+        final CompletableFuture<Integer> accepted = channel.putAll(
+            Arrays.asList(LangUtils.supply(1), LangUtils.supply(2), LangUtils.supply(3))
+        );
+        try {
+            accepted.get();
+            assertTrue(false);
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof TimeoutException);
+        }
+        assertEquals(1, channel.poll().intValue());
+        assertEquals(2, channel.poll().intValue());
+        assertNull(channel.poll());
+
+        final IChannel<Integer, Integer> limited = Channel.<Integer>channel()
+            .withCapacity(1)
+            .withMaxPutRequests(1)
+            .get();
+        assertFalse(limited.putAll(Arrays.asList(LangUtils.supply(1), LangUtils.supply(2))).isDone());
+        final CompletableFuture<Integer> rejected = limited.putAll(Arrays.asList(LangUtils.supply(3), LangUtils.supply(4)));
+        try {
+            rejected.get();
+            assertTrue(false);
+        } catch (ExecutionException e) {
+            assertEquals("Request queue is full.", e.getCause().getMessage());
+        }
+
+        final IChannel<Integer, Integer> racing = Channel.<Integer>channel()
+            .withCapacity(1)
+            .withPutTimeout(Duration.ofMillis(1))
+            .get();
+        final AtomicInteger taken = new AtomicInteger();
+        final AtomicInteger running = new AtomicInteger(1);
+        final Thread consumer = new Thread(() -> {
+                while (running.get() != 0) {
+                    if (racing.poll() != null) {
+                        taken.incrementAndGet();
+                    }
+                }
+            });
+        consumer.start();
+        int completed = 0;
+        for (int round = 0; round < 50; round++) {
+            final List<Supplier<Integer>> values = new ArrayList<>();
+            for (int i = 0; i < 100; i++) {
+                values.add(LangUtils.supply(i));
+            }
+            try {
+                assertEquals(100, racing.putAll(values).get().intValue());
+                completed++;
+            } catch (ExecutionException e) {
+                assertTrue(e.getCause() instanceof TimeoutException);
+            }
+        }
+        running.set(0);
+        consumer.join();
+        while (racing.poll() != null) {
+            taken.incrementAndGet();
+        }
+        assertTrue(taken.get() >= completed * 100);
+        assertTrue(taken.get() <= 50 * 100);
+    }
+
+    @Test
+    public void metricsTest() throws Exception {
+        final Channel<String, String> channel = Channel.<String>channel()
+            .withMaxTakeRequests(1)
+            .withMetrics("metricsTest")
+            .get();
+        final ChannelMetrics metrics = channel.getMetrics().get();
+        channel.put(LangUtils.supply("value"));
+        assertEquals(1, metrics.getBufferSize());
+        assertEquals("value", channel.take().get());
+        channel.take();
+        channel.take();
+        assertEquals(1, metrics.getPuts());
+        assertEquals(1, metrics.getTakes());
+        assertEquals(1, metrics.getTakeRequests());
+        assertEquals(1, metrics.getTakeRejections());
+        assertEquals(1, metrics.getLatency().count());
+        final ObjectName name = new ObjectName("com.github.xdcrafts.swarm:type=Channel,name=\"metricsTest\"");
+        assertEquals(1L, ManagementFactory.getPlatformMBeanServer().getAttribute(name, "Puts"));
+        assertEquals(name, metrics.getObjectName());
+        final Channel<String, String> duplicate = Channel.<String>channel().withMetrics("metricsTest").get();
+        final ObjectName duplicateName = duplicate.getMetrics().get().getObjectName();
+        assertEquals(new ObjectName("com.github.xdcrafts.swarm:type=Channel,name=\"metricsTest-2\""), duplicateName);
+        channel.close();
+        assertFalse(ManagementFactory.getPlatformMBeanServer().isRegistered(name));
+        assertTrue(ManagementFactory.getPlatformMBeanServer().isRegistered(duplicateName));
+        duplicate.close();
+        assertFalse(ManagementFactory.getPlatformMBeanServer().isRegistered(duplicateName));
+        assertFalse(Channel.<String>channel().get().getMetrics().isPresent());
+    }
+
+    @Test
+    public void directDeliveryTest() throws InterruptedException, ExecutionException {
+        final AtomicInteger executed = new AtomicInteger();
+        final IChannel<Thread, Thread> channel = Channel.<Thread>channel()
+            .withDelivery(Channel.Delivery.DIRECT)
+            .withExecutor(runnable -> {
+                    executed.incrementAndGet();
+                    new Thread(runnable).start();
+                })
+            .get();
+        channel.put(Thread::currentThread);
+        final CompletableFuture<Thread> direct = channel.take();
+        assertTrue(direct.isDone());
+        assertEquals(Thread.currentThread(), direct.get());
+        final CompletableFuture<Thread> parked = channel.take();
+        channel.put(Thread::currentThread);
+        assertEquals(Thread.currentThread(), parked.get());
+        channel.put(Async.expensive(Thread::currentThread));
+        assertFalse(Thread.currentThread().equals(channel.take().get()));
+        assertEquals(1, executed.get());
+    }
+
+    @Test
+    public void blockingTakePutTest() throws Exception {
+        final IChannel<Integer, Integer> channel = Channel.<Integer>channel().withCapacity(1).get();
+        final AtomicInteger taken = new AtomicInteger();
+        final Thread taker = new Thread(() -> {
+                try {
+                    taken.set(channel.takeBlocking(Duration.ofSeconds(5)));
+                } catch (Exception e) {
+                    taken.set(-1);
+                }
+            });
+        taker.start();
+        channel.put(() -> 42).get();
+        taker.join();
+        assertEquals(42, taken.get());
+        assertTrue(channel.putBlocking(() -> 1, Duration.ofSeconds(1)));
+        final Thread putter = new Thread(() -> {
+                try {
+                    channel.putBlocking(() -> 2, Duration.ofSeconds(5));
+                } catch (Exception e) {
+                    taken.set(-1);
+                }
+            });
+        putter.start();
+        assertEquals(1, channel.takeBlocking(Duration.ofSeconds(1)).intValue());
+        putter.join();
+        assertEquals(2, channel.takeBlocking(Duration.ofSeconds(1)).intValue());
+        assertEquals(42, taken.get());
+        try {
+            channel.takeBlocking(Duration.ofMillis(10));
+            assertTrue(false);
+        } catch (TimeoutException e) {
+            assertTrue(e.getMessage().startsWith("Timeout after"));
+        }
+        final IChannel<Integer, Integer> filtered = Channel.<Integer, Integer>channel(
+            Implementations.filter(value -> value.get() > 0)
+        ).get();
+        assertFalse(filtered.putBlocking(() -> 0, Duration.ofSeconds(1)));
+        assertTrue(filtered.putBlocking(() -> 1, Duration.ofSeconds(1)));
+        assertEquals(1, filtered.takeBlocking(Duration.ofSeconds(1)).intValue());
+    }
+
+    @Test
+    public void releaseSlotsOnTimeoutTest() throws Exception {
+        final Channel<Integer, Integer> channel = Channel.<Integer>channel()
+            .withMaxTakeRequests(8)
+            .withMaxPutRequests(8)
+            .withTakeTimeout(Duration.ofMillis(1))
+            .withPutTimeout(Duration.ofMillis(1))
+            .withMetrics("releaseSlotsOnTimeoutTest")
+            .get();
+        final ChannelMetrics metrics = channel.getMetrics().get();
+        for (int round = 0; round < 50; round++) {
+            final List<CompletableFuture<Integer>> takes = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                takes.add(channel.take());
+            }
+            takes.get(0).cancel(false);
+            for (CompletableFuture<Integer> take : takes) {
+                take.handle((res, exc) -> exc).get();
+            }
+            awaitZero(metrics::getTakeRequests);
+        }
+        assertEquals(0, metrics.getTakeRejections());
+        channel.put(() -> 0).get();
+        for (int round = 0; round < 50; round++) {
+            final List<CompletableFuture<Optional<Supplier<Integer>>>> puts = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                puts.add(channel.put(() -> 1));
+            }
+            for (CompletableFuture<Optional<Supplier<Integer>>> put : puts) {
+                put.handle((res, exc) -> exc).get();
+            }
+            awaitZero(metrics::getPutRequests);
+        }
+        assertEquals(0, metrics.getPutRejections());
+        assertEquals(0, channel.take().get().intValue());
+        channel.close();
+    }
+
+    @Test
+    public void pipelineTest() throws InterruptedException, ExecutionException {
+        for (boolean isOrdered : new boolean[] {true, false}) {
+            final IChannel<Integer, Integer> left = Channel.<Integer>channel()
+                .withCapacity(32)
+                .withTakeTimeout(Duration.ofMillis(50))
+                .get();
+            final IChannel<String, String> right = Channel.<String>channel().withCapacity(64).get();
+            final AtomicInteger running = new AtomicInteger();
+            final AtomicInteger maxRunning = new AtomicInteger();
+            final ITransducer<String, Integer> slowToString = Implementations.map(value -> {
+                    maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                    try {
+                        Thread.sleep(20 - value % 3 * 5);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    running.decrementAndGet();
+                    return value.toString();
+                });
+            final ITransducer<String, Integer> transducer = Transducers.compose(
+                Implementations.<Integer>filter(value -> value % 10 != 9), slowToString
+            );
+            final Async.Completion completion = isOrdered
+                ? Async.pipeline(4, left, right, transducer)
+                : Async.pipelineUnordered(4, left, right, transducer);
+            final List<String> expected = new ArrayList<>();
+            for (int i = 0; i < 30; i++) {
+                left.put(LangUtils.supply(i)).get();
+                if (i % 10 != 9) {
+                    expected.add(Integer.toString(i));
+                }
+            }
+            final List<String> actual = new ArrayList<>();
+            for (int i = 0; i < expected.size(); i++) {
+                actual.add(right.take().get());
+            }
+            if (!isOrdered) {
+                actual.sort(Comparator.comparingInt(Integer::parseInt));
+            }
+            assertEquals(expected, actual);
+            assertTrue(maxRunning.get() > 1);
+            assertTrue(maxRunning.get() <= 4);
+            completion.done();
+            completion.await();
+            assertTrue(completion.isCompleted());
+        }
+
+        // Left channel rejects takes of pipeline while another take holds its only take slot
+        final Channel<Integer, Integer> busy = Channel.<Integer>channel()
+            .withMaxTakeRequests(1)
+            .withTakeTimeout(Duration.ofMillis(200))
+            .withMetrics("pipelineTest")
+            .get();
+        final CompletableFuture<Integer> holder = busy.take();
+        final Async.Completion completion = Async.pipeline(
+            2, busy, Channel.<String>channel().get(), Implementations.map(Object::toString)
+        );
+        Thread.sleep(100);
+        assertTrue(busy.getMetrics().get().getTakeRejections() < 20);
+        holder.cancel(false);
+        completion.done();
+        busy.close();
+    }
+
+    @Test
+    public void pipelineBackPressureTest() throws InterruptedException, ExecutionException, TimeoutException {
+        final IChannel<Integer, Integer> left = Channel.<Integer>channel().withCapacity(4).get();
+        final IChannel<Integer, Integer> right = Channel.<Integer>channel()
+            .withCapacity(1)
+            .withPutTimeout(Duration.ofMillis(20))
+            .get();
+        for (int i = 0; i < 3; i++) {
+            left.put(LangUtils.supply(i)).get();
+        }
+        final Async.Completion completion = Async.pipeline(1, left, right, Implementations.<Integer>id());
+        final CompletableFuture<Optional<Throwable>> result = new CompletableFuture<>();
+        completion.whenComplete(result::complete);
+        // Value that right channel does not accept within put timeout fails pipeline instead of being dropped
+        final Throwable error = result.get(1, TimeUnit.SECONDS).get();
+        assertTrue(error instanceof CompletionException && error.getCause() instanceof TimeoutException);
+        assertEquals(0, right.poll().intValue());
+        assertNull(right.poll());
+        assertEquals(2, left.poll().intValue());
+    }
+
+    @Test
+    public void stackSafeLoopsTest() throws InterruptedException, ExecutionException {
+        final int count = 200_000;
+        final IChannel<Integer, Integer> channel = Channel.<Integer>channel()
+            .withCapacity(count)
+            .withDelivery(Channel.Delivery.DIRECT)
+            .get();
+        final AtomicInteger put = new AtomicInteger();
+        final AtomicInteger next = new AtomicInteger();
+        final Async.Completion putCompletion = Async.putLoop(channel, next::incrementAndGet, (res, cmp) -> {
+                if (put.incrementAndGet() == count) {
+                    cmp.done();
+                }
+            });
+        putCompletion.await();
+        final AtomicLong sum = new AtomicLong();
+        final AtomicInteger taken = new AtomicInteger();
+        final Async.Completion takeCompletion = Async.takeLoop(channel, (Integer value, Async.Completion cmp) -> {
+                sum.addAndGet(value);
+                if (taken.incrementAndGet() == count) {
+                    cmp.done();
+                }
+            });
+        takeCompletion.await();
+        assertEquals((long) count * (count + 1) / 2, sum.get());
+    }
+
+    @Test
+    public void batchingTest() throws Exception {
+        final IChannel<List<Integer>, Integer> channel = Channel.<Integer>channel()
+            .withBatching(3, Duration.ofMillis(50))
+            .withCapacity(16)
+            .withTakeTimeout(Duration.ofSeconds(5))
+            .get();
+        for (int i = 1; i <= 7; i++) {
+            assertTrue(channel.put(LangUtils.supply(i)).isDone());
+        }
+        assertEquals(Arrays.asList(1, 2, 3), channel.take().get());
+        assertEquals(Arrays.asList(4, 5, 6), channel.take().get());
+        final long start = System.nanoTime();
+        assertEquals(Arrays.asList(7), channel.take().get());
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(40));
+        assertEquals(1, channel.putAll(Arrays.asList(LangUtils.supply(8), LangUtils.supply(9),
+            LangUtils.supply(10), LangUtils.supply(11))).get().intValue());
+        assertEquals(Arrays.asList(8, 9, 10), channel.take().get());
+        assertEquals(Arrays.asList(11), channel.take().get());
+        channel.put(LangUtils.supply(12));
+        final CompletableFuture<List<Integer>> last = channel.take();
+        channel.close();
+        assertEquals(Arrays.asList(12), last.get(1, TimeUnit.SECONDS));
+
+        // Nothing waits for pending batch, it stays in buffer till it is taken
+        final IChannel<List<Integer>, Integer> unread = Channel.<Integer>channel()
+            .withBatching(3, Duration.ofSeconds(5))
+            .withCapacity(16)
+            .get();
+        unread.put(LangUtils.supply(1));
+        unread.put(LangUtils.supply(2));
+        unread.close();
+        assertEquals(Arrays.asList(1, 2), unread.poll());
+        assertNull(unread.poll());
+        try {
+            unread.take().get();
+            assertTrue(false);
+        } catch (ExecutionException e) {
+            assertEquals("Channel is closed.", e.getCause().getMessage());
+        }
+    }
+
+    @Test
+    public void offerPollTest() throws InterruptedException, ExecutionException {
+        final IChannel<Integer, Integer> channel = Channel.<Integer>channel().withCapacity(2).get();
+        assertNull(channel.poll());
+        assertTrue(channel.offer(LangUtils.supply(1)));
+        assertTrue(channel.offer(LangUtils.supply(2)));
+        assertFalse(channel.offer(LangUtils.supply(3)));
+        final CompletableFuture<Optional<Supplier<Integer>>> parked = channel.put(LangUtils.supply(3));
+        assertFalse(parked.isDone());
+        assertEquals(1, channel.poll().intValue());
+        assertTrue(parked.get().isPresent());
+        assertEquals(2, channel.poll().intValue());
+        assertTrue(channel.put(LangUtils.supply(4)).isDone());
+        assertFalse(channel.put(LangUtils.supply(5)).isDone());
+        assertFalse(channel.offer(LangUtils.supply(6)));
+        assertEquals(3, channel.poll().intValue());
+        assertEquals(4, channel.poll().intValue());
+        assertEquals(5, channel.poll().intValue());
+        final CompletableFuture<Integer> take = channel.take();
+        assertTrue(channel.offer(LangUtils.supply(7)));
+        assertEquals(7, take.get().intValue());
+
+        final IChannel<Integer, Integer> filtered = Channel.<Integer, Integer>channel(
+            Implementations.filter(value -> value.get() % 2 == 0)
+        ).withCapacity(1).get();
+        assertTrue(filtered.offer(LangUtils.supply(1)));
+        assertNull(filtered.poll());
+        assertTrue(filtered.offer(LangUtils.supply(2)));
+        assertFalse(filtered.offer(LangUtils.supply(4)));
+        assertEquals(2, filtered.poll().intValue());
+        channel.close();
+        assertFalse(channel.offer(LangUtils.supply(8)));
+        assertNull(channel.poll());
+
+        final ShardedChannel<Integer> sharded = ShardedChannel.sharded(
+            2, value -> value, Channel.<Integer>channel().withCapacity(1)
+        );
+        assertTrue(sharded.offer(LangUtils.supply(0)));
+        assertFalse(sharded.offer(LangUtils.supply(0)));
+        assertTrue(sharded.offer(LangUtils.supply(1)));
+        assertEquals(new HashSet<>(Arrays.asList(0, 1)), new HashSet<>(Arrays.asList(sharded.poll(), sharded.poll())));
+        assertNull(sharded.poll());
+
+        // Offer is accepted only if the whole expansion fits into buffer
+        final IChannel<Integer, Integer> doubled = Channel.<Integer, Integer>channel(
+            Implementations.<Supplier<Integer>, List<Supplier<Integer>>, Supplier<Integer>>mapcat(
+                value -> Arrays.asList(value, value)
+            )
+        ).withCapacity(3).get();
+        assertTrue(doubled.offer(LangUtils.supply(1)));
+        assertFalse(doubled.offer(LangUtils.supply(2)));
+        assertEquals(1, doubled.poll().intValue());
+        assertEquals(1, doubled.poll().intValue());
+        assertNull(doubled.poll());
+        assertTrue(doubled.offer(LangUtils.supply(3)));
+        assertEquals(3, doubled.poll().intValue());
+    }
+
+    @Test
+    public void valueChannelTest() throws InterruptedException, ExecutionException {
+        final IChannel<Integer, Integer> channel = Channel.<Integer>valueChannel().withCapacity(2).get();
+        final AtomicInteger evaluations = new AtomicInteger();
+        assertTrue(channel.put(() -> evaluations.incrementAndGet()).isDone());
+        assertEquals(1, evaluations.get());
+        assertEquals(1, channel.take().get().intValue());
+
+        final IChannel<String, Integer> mapping = Channel.<String, Integer>valueChannel(Transducers.compose(
+            Implementations.filter(value -> value % 2 == 0), Implementations.map(value -> "v" + value)
+        )).withCapacity(4).get();
+        for (int i = 0; i < 8; i++) {
+            assertTrue(mapping.put(LangUtils.supply(i)).isDone());
+        }
+        assertFalse(mapping.put(LangUtils.supply(8)).isDone());
+        assertEquals(Arrays.asList("v0", "v2", "v4"), mapping.takeBatch(3).get());
+        assertEquals("v6", mapping.poll());
+        assertEquals("v8", mapping.take().get());
+
+        final IChannel<List<Integer>, Integer> batches = Channel.<Integer>valueChannel()
+            .withBatching(2, Duration.ofSeconds(1))
+            .withCapacity(1)
+            .get();
+        assertTrue(batches.offer(LangUtils.supply(1)));
+        assertTrue(batches.offer(LangUtils.supply(2)));
+        assertEquals(Arrays.asList(1, 2), batches.poll());
+
+        // Failing supplier fails its own put only
+        final IChannel<Integer, Integer> failing = Channel.<Integer>valueChannel().withCapacity(1).get();
+        assertTrue(failing.put(LangUtils.supply(1)).isDone());
+        final CompletableFuture<Optional<Supplier<Integer>>> failed = failing.put(() -> {
+                throw new IllegalStateException("broken");
+            });
+        try {
+            failed.get();
+            assertTrue(false);
+        } catch (ExecutionException e) {
+            assertEquals("broken", e.getCause().getMessage());
+        }
+        assertEquals(1, failing.take().get().intValue());
+        assertTrue(failing.put(LangUtils.supply(2)).isDone());
+        assertEquals(2, failing.take().get().intValue());
+
+        // Failing supplier fails whole putAll before anything is put
+        final CompletableFuture<Integer> failedAll = failing.putAll(Arrays.asList(LangUtils.supply(3), () -> {
+                throw new IllegalStateException("broken");
+            }));
+        try {
+            failedAll.get();
+            assertTrue(false);
+        } catch (ExecutionException e) {
+            assertEquals("broken", e.getCause().getMessage());
+        }
+        assertNull(failing.poll());
+
+        // Parked put that buffer fails to add leaves dispatch loop working
+        final IChannel<Integer, Integer> prioritized = Channel.<Integer>valueChannel()
+            .withPriorityBuffer(2, (left, right) -> {
+                    if (left == 13 || right == 13) {
+                        throw new IllegalStateException("unlucky");
+                    }
+                    return Integer.compare(left, right);
+                }, null)
+            .get();
+        assertTrue(prioritized.put(LangUtils.supply(1)).isDone());
+        assertTrue(prioritized.put(LangUtils.supply(2)).isDone());
+        final CompletableFuture<Optional<Supplier<Integer>>> unlucky = prioritized.put(LangUtils.supply(13));
+        assertFalse(unlucky.isDone());
+        assertEquals(1, prioritized.take().get().intValue());
+        try {
+            unlucky.get();
+            assertTrue(false);
+        } catch (ExecutionException e) {
+            assertEquals("unlucky", e.getCause().getMessage());
+        }
+        assertEquals(2, prioritized.take().get().intValue());
+        assertTrue(prioritized.put(LangUtils.supply(3)).isDone());
+        assertEquals(3, prioritized.take().get().intValue());
+    }
+
+    /**
+     * Slots are released by completion callbacks, which may still run when test sees future completed.
+     */
+    private static void awaitZero(IntSupplier counter) throws InterruptedException {
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(1);
+        while (counter.getAsInt() != 0 && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+        assertEquals(0, counter.getAsInt());
+    }
 }
@@ -0,0 +1,81 @@
+package com.github.xdcrafts.swarm.async;
+
+import com.github.xdcrafts.swarm.async.impl.Channel;
+import com.github.xdcrafts.swarm.util.LangUtils;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+/**
+ * Tests for {@link ChannelPublisher} and {@link ChannelSubscriber}.
+ */
+public class ChannelPublisherSubscriberTest {
+
+    @Test
+    public void publisherSubscriberTest() throws InterruptedException, ExecutionException {
+        final IChannel<Integer, Integer> source = Channel.<Integer>channel()
+            .withCapacity(64)
+            .withTakeTimeout(Duration.ofMillis(50))
+            .get();
+        for (int i = 0; i < 10; i++) {
+            source.put(LangUtils.supply(i)).get();
+        }
+        final List<Integer> received = new ArrayList<>();
+        final AtomicReference<ISubscription> subscription = new AtomicReference<>();
+        final CompletableFuture<Void> completed = new CompletableFuture<>();
+        ChannelPublisher.publisher(source, 4).subscribe(new ISubscriber<Integer>() {
+                @Override
+                public void onSubscribe(ISubscription s) {
+                    subscription.set(s);
+                    s.request(3);
+                }
+                @Override
+                public void onNext(Integer value) {
+                    received.add(value);
+                }
+                @Override
+                public void onError(Throwable error) {
+                    completed.completeExceptionally(error);
+                }
+                @Override
+                public void onComplete() {
+                    completed.complete(null);
+                }
+            });
+        assertEquals(Arrays.asList(0, 1, 2), received);
+        subscription.get().request(7);
+        assertEquals(10, received.size());
+        subscription.get().request(1);
+        source.put(LangUtils.supply(10)).get();
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(1);
+        while (received.size() < 11 && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+        assertEquals(11, received.size());
+        source.close();
+        subscription.get().request(1);
+        completed.get();
+
+        final IChannel<Integer, Integer> left = Channel.<Integer>channel().withCapacity(256).get();
+        final IChannel<Integer, Integer> right = Channel.<Integer>channel().withCapacity(8).get();
+        for (int i = 0; i < 100; i++) {
+            left.put(LangUtils.supply(i));
+        }
+        final ChannelSubscriber<Integer> subscriber = ChannelSubscriber.subscriber(right, 8, true);
+        ChannelPublisher.publisher(left).subscribe(subscriber);
+        for (int i = 0; i < 100; i++) {
+            assertEquals(i, right.take().get().intValue());
+        }
+        assertFalse(subscriber.completion().isDone());
+    }
+}
@@ -0,0 +1,64 @@
+package com.github.xdcrafts.swarm.async;
+
+import com.github.xdcrafts.swarm.async.impl.Channel;
+import com.github.xdcrafts.swarm.util.LangUtils;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for {@link Mult}.
+ */
+public class MultTest {
+
+    @Test
+    public void multTest() throws InterruptedException, ExecutionException {
+        final IChannel<Object, Object> source = Channel.channel().withCapacity(16).get();
+        final IChannel<Object, Object> slow = Channel.channel().withCapacity(4).get();
+        final IChannel<Object, Object> dropping = Channel.channel().withDroppingBuffer(1).get();
+        final IChannel<Object, Object> kept = Channel.channel().get();
+        final Mult<Object> mult = Mult.mult(source, 2).tap(slow).tap(dropping).tap(kept, false);
+        final List<Object> values = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            final Object value = new Object();
+            values.add(value);
+            source.put(LangUtils.supply(value)).get();
+        }
+        for (Object value : values) {
+            assertTrue(value == slow.take().get());
+            assertTrue(value == kept.take().get());
+        }
+        assertTrue(values.get(0) == dropping.take().get());
+        mult.untap(kept);
+        source.close();
+        // Mult notices closed source when its parked take times out
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!slow.isClosed() && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+        assertTrue(slow.isClosed());
+        assertTrue(dropping.isClosed());
+        assertFalse(kept.isClosed());
+
+        // Source rejects takes of mult while another take holds its only take slot
+        final Channel<Object, Object> busy = Channel.channel()
+            .withMaxTakeRequests(1)
+            .withTakeTimeout(Duration.ofMillis(200))
+            .withMetrics("multTest")
+            .get();
+        final CompletableFuture<Object> holder = busy.take();
+        Mult.mult(busy).tap(Channel.channel().get());
+        Thread.sleep(100);
+        assertTrue(busy.getMetrics().get().getTakeRejections() < 20);
+        holder.cancel(false);
+        busy.close();
+    }
+}
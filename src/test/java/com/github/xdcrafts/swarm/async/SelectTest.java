@@ -0,0 +1,73 @@
+package com.github.xdcrafts.swarm.async;
+
+import com.github.xdcrafts.swarm.async.impl.Channel;
+import com.github.xdcrafts.swarm.transducers.IReducer;
+import com.github.xdcrafts.swarm.transducers.ITransducer;
+import com.github.xdcrafts.swarm.util.LangUtils;
+import org.junit.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Supplier;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for {@link Select}.
+ */
+public class SelectTest {
+
+    @Test
+    public void selectTest() throws InterruptedException, ExecutionException {
+        final ISelectableChannel<String, String> first = Channel.<String>channel().get();
+        final ISelectableChannel<String, String> second = Channel.<String>channel().get();
+        final CompletableFuture<Select.Selected> selected = Select.select().take(first).take(second).get();
+        assertFalse(selected.isDone());
+        second.put(LangUtils.supply("second"));
+        assertEquals(1, selected.get().getIndex());
+        assertEquals("second", selected.get().getValue());
+        first.put(LangUtils.supply("first"));
+        assertEquals("first", first.take().get());
+
+        first.put(LangUtils.supply("value"));
+        final Select.Selected put = Select.select()
+            .put(first, LangUtils.supply("blocked"))
+            .take(first)
+            .put(second, LangUtils.supply("free"))
+            .get()
+            .get();
+        assertEquals(1, put.getIndex());
+        assertEquals("value", put.getValue());
+        final Select.Selected free = Select.select()
+            .put(first, LangUtils.supply("free"))
+            .put(second, LangUtils.supply("free"))
+            .withMode(Select.Mode.PRIORITY)
+            .get()
+            .get();
+        assertEquals(0, free.getIndex());
+        assertEquals("free", first.take().get());
+        assertTrue(first.takeBatch(1).thenApply(v -> false).getNow(true));
+
+        final ISelectableChannel<String, String> failing = Channel.channel(
+            new ITransducer<Supplier<String>, Supplier<String>>() {
+                @Override
+                public <R> IReducer<R, Supplier<String>> apply(IReducer<R, Supplier<String>> reducer) {
+                    return (result, value) -> {
+                        throw new IllegalStateException("Transducer failed");
+                    };
+                }
+            }
+        ).get();
+        final ISelectableChannel<String, String> third = Channel.<String>channel().get();
+        try {
+            Select.select().take(third).put(failing, LangUtils.supply("failing")).get();
+            assertTrue(false);
+        } catch (IllegalStateException e) {
+            assertEquals("Transducer failed", e.getMessage());
+        }
+        third.put(LangUtils.supply("kept"));
+        assertEquals("kept", third.poll());
+    }
+}
@@ -0,0 +1,93 @@
+package com.github.xdcrafts.swarm.async;
+
+import com.github.xdcrafts.swarm.async.impl.Channel;
+import com.github.xdcrafts.swarm.util.LangUtils;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+import javax.management.ObjectName;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for {@link ShardedChannel}.
+ */
+public class ShardedChannelTest {
+
+    @Test
+    public void shardedChannelTest() throws Exception {
+        final ShardedChannel<Integer> sharded = ShardedChannel.sharded(
+            4, value -> value % 8, Channel.<Integer>channel().withCapacity(1024)
+        );
+        for (int i = 0; i < 1000; i++) {
+            assertTrue(sharded.put(LangUtils.supply(i)).isDone());
+        }
+        final int[] last = new int[8];
+        Arrays.fill(last, -1);
+        for (int i = 0; i < 1000; i++) {
+            final int value = i % 2 == 0 ? sharded.take().get() : sharded.takeBatch(1).get().get(0);
+            assertTrue(value > last[value % 8]);
+            last[value % 8] = value;
+        }
+        final CompletableFuture<Integer> parked = sharded.take();
+        assertFalse(parked.isDone());
+        assertTrue(sharded.put(LangUtils.supply(5)).get().isPresent());
+        assertEquals(5, parked.get().intValue());
+
+        final ShardedChannel<Integer> stealing = ShardedChannel.sharded(
+            4, value -> value, Channel.<Integer>channel().withCapacity(16)
+        );
+        final int home = (int) (Thread.currentThread().getId() % 4);
+        final int busy = (home + 1) % 4;
+        assertTrue(stealing.put(LangUtils.supply(busy)).isDone());
+        assertTrue(stealing.put(LangUtils.supply(busy)).isDone());
+        final List<Integer> taken = new ArrayList<>();
+        assertEquals(1, stealing.drainTo(taken, 1));
+        assertEquals(busy, stealing.shardOf(busy));
+        int owned = 0;
+        for (int key = 0; key < 64; key++) {
+            if (stealing.shardOf(key) == home) {
+                owned++;
+            }
+        }
+        assertEquals(17, owned);
+        assertTrue(stealing.offer(LangUtils.supply(100)));
+        assertTrue(stealing.offer(LangUtils.supply(101)));
+        stealing.close();
+        assertTrue(stealing.isClosed());
+        // Values that are left in shards can still be taken
+        final List<Integer> left = new ArrayList<>(stealing.takeBatch(8).get());
+        left.sort(Comparator.naturalOrder());
+        assertEquals(Arrays.asList(busy, 100, 101), left);
+        try {
+            stealing.take().get();
+            assertTrue(false);
+        } catch (ExecutionException e) {
+            assertEquals("Channel is closed.", e.getCause().getMessage());
+        }
+
+        final ShardedChannel<Integer> metered = ShardedChannel.sharded(
+            2, value -> value, Channel.<Integer>channel().withCapacity(16).withMetrics("shardedChannelTest")
+        );
+        final ObjectName firstShard = new ObjectName(
+            "com.github.xdcrafts.swarm:type=Channel,name=\"shardedChannelTest\""
+        );
+        final ObjectName secondShard = new ObjectName(
+            "com.github.xdcrafts.swarm:type=Channel,name=\"shardedChannelTest-2\""
+        );
+        assertTrue(ManagementFactory.getPlatformMBeanServer().isRegistered(firstShard));
+        assertTrue(ManagementFactory.getPlatformMBeanServer().isRegistered(secondShard));
+        metered.close();
+        assertFalse(ManagementFactory.getPlatformMBeanServer().isRegistered(firstShard));
+        assertFalse(ManagementFactory.getPlatformMBeanServer().isRegistered(secondShard));
+    }
+}
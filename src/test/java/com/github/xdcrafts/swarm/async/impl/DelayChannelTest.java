@@ -0,0 +1,87 @@
+package com.github.xdcrafts.swarm.async.impl;
+
+import com.github.xdcrafts.swarm.util.LangUtils;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for {@link DelayChannel}.
+ */
+public class DelayChannelTest {
+
+    @Test
+    public void delayChannelTest() throws InterruptedException, ExecutionException {
+        final DelayChannel<Integer> channel = DelayChannel.<Integer>delayChannel()
+            .withWheel(Duration.ofMillis(1), 16)
+            .withCapacity(4)
+            .get();
+        assertTrue(channel.offer(LangUtils.supply(3), Duration.ofMillis(60)));
+        assertTrue(channel.offer(LangUtils.supply(2), Duration.ofMillis(40)));
+        assertTrue(channel.offer(LangUtils.supply(1), Duration.ofMillis(20)));
+        assertTrue(channel.put(LangUtils.supply(0)).get().isPresent());
+        assertFalse(channel.offer(LangUtils.supply(4), Duration.ZERO));
+        assertEquals(4, channel.size());
+        assertEquals(0, channel.take().get().intValue());
+        assertNull(channel.poll());
+        final long start = System.nanoTime();
+        assertEquals(1, channel.take().get().intValue());
+        assertEquals(2, channel.take().get().intValue());
+        assertEquals(3, channel.take().get().intValue());
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(50));
+        assertEquals(0, channel.size());
+
+        final CompletableFuture<Integer> parked = channel.take();
+        assertTrue(channel.offer(LangUtils.supply(5), Duration.ofMillis(10)));
+        assertEquals(5, parked.get().intValue());
+
+        final CompletableFuture<Integer> closed = channel.take();
+        channel.close();
+        try {
+            closed.get();
+            assertTrue(false);
+        } catch (ExecutionException e) {
+            assertEquals("Channel is closed.", e.getCause().getMessage());
+        }
+        // Values that are left in closed channel can still be taken once they are due
+        final DelayChannel<Integer> closing = DelayChannel.<Integer>delayChannel().get();
+        assertTrue(closing.offer(LangUtils.supply(6)));
+        assertTrue(closing.offer(LangUtils.supply(7), Duration.ofMillis(50)));
+        closing.close();
+        Thread.sleep(5);
+        assertEquals(6, closing.take().get().intValue());
+        assertNull(closing.poll());
+        Thread.sleep(60);
+        assertEquals(7, closing.poll().intValue());
+        try {
+            closing.take().get();
+            assertTrue(false);
+        } catch (ExecutionException e) {
+            assertEquals("Channel is closed.", e.getCause().getMessage());
+        }
+
+        // Value cascaded from overflow waits for its own deadline, not for the bucket it shares with current tick
+        final DelayChannel<Integer> coarse = DelayChannel.<Integer>delayChannel()
+            .withWheel(Duration.ofMillis(10), 4)
+            .withCapacity(4)
+            .get();
+        assertTrue(coarse.offer(LangUtils.supply(1), Duration.ofMillis(35)));
+        assertTrue(coarse.offer(LangUtils.supply(2), Duration.ofMillis(65)));
+        Thread.sleep(45);
+        final List<Integer> due = new ArrayList<>();
+        coarse.drainTo(due, 4);
+        assertEquals(Arrays.asList(1), due);
+        assertEquals(2, coarse.take().get().intValue());
+    }
+}
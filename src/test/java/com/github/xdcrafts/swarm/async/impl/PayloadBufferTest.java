@@ -0,0 +1,73 @@
+package com.github.xdcrafts.swarm.async.impl;
+
+import com.github.xdcrafts.swarm.async.IChannel;
+import com.github.xdcrafts.swarm.util.LangUtils;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ExecutionException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for {@link PayloadBuffer}.
+ */
+public class PayloadBufferTest {
+
+    @Test
+    public void payloadBufferTest() throws InterruptedException, ExecutionException {
+        final PayloadBuffer buffer = new PayloadBuffer(1024, 64);
+        for (int round = 0; round < 3; round++) {
+            for (int i = 0; i < 100; i++) {
+                final ByteBuffer payload = ByteBuffer.allocate(4).putInt(i);
+                payload.flip();
+                assertTrue(buffer.add(payload));
+                assertEquals(4, payload.remaining());
+            }
+            assertEquals(800, buffer.bytes());
+            final ByteBuffer first = buffer.poll();
+            for (int i = 1; i < 100; i++) {
+                final ByteBuffer payload = buffer.poll();
+                assertTrue(payload.isReadOnly());
+                assertEquals(4, payload.remaining());
+                assertEquals(i, payload.getInt());
+            }
+            assertEquals(0, first.getInt());
+            assertTrue(buffer.isEmpty());
+            assertEquals(0, buffer.bytes());
+            assertEquals(64, buffer.regionBytes());
+            assertNull(buffer.poll());
+        }
+        final PayloadBuffer limited = new PayloadBuffer(16, 64);
+        assertTrue(limited.add(ByteBuffer.allocate(100)));
+        assertFalse(limited.add(ByteBuffer.allocate(1)));
+        assertTrue(limited.isFull());
+        assertEquals(100, limited.poll().remaining());
+        assertTrue(limited.add(ByteBuffer.allocate(12)));
+        assertFalse(limited.add(ByteBuffer.allocate(0)));
+
+        // Region is sized from capacity, so small buffer does not hold megabyte off heap
+        final PayloadBuffer small = new PayloadBuffer(1024);
+        assertTrue(small.add(ByteBuffer.allocate(8)));
+        assertEquals(4 * 1024, small.regionBytes());
+        final PayloadBuffer large = new PayloadBuffer(64 * 1024 * 1024);
+        assertTrue(large.add(ByteBuffer.allocate(8)));
+        assertEquals(1024 * 1024, large.regionBytes());
+
+        final IChannel<ByteBuffer, ByteBuffer> channel = Channel.payloadChannel(1100).get();
+        final byte[] bytes = "payload".getBytes();
+        for (int i = 0; i < 100; i++) {
+            assertTrue(channel.put(LangUtils.supply(ByteBuffer.wrap(bytes))).isDone());
+        }
+        assertFalse(channel.put(LangUtils.supply(ByteBuffer.wrap(bytes))).isDone());
+        for (int i = 0; i < 101; i++) {
+            assertEquals(ByteBuffer.wrap(bytes), channel.take().get());
+        }
+        final IChannel<ByteBuffer, ByteBuffer> regioned = Channel.payloadChannel(1100, 128).get();
+        assertTrue(regioned.offer(LangUtils.supply(ByteBuffer.wrap(bytes))));
+        assertEquals(ByteBuffer.wrap(bytes), regioned.poll());
+    }
+}
@@ -0,0 +1,111 @@
+package com.github.xdcrafts.swarm.async.impl;
+
+import com.github.xdcrafts.swarm.async.IChannel;
+import com.github.xdcrafts.swarm.util.LangUtils;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for {@link PriorityBuffer}.
+ */
+public class PriorityBufferTest {
+
+    @Test
+    public void priorityBufferTest() throws InterruptedException, ExecutionException {
+        final PriorityBuffer<Integer> buffer = new PriorityBuffer<>(100, Comparator.naturalOrder());
+        for (int i = 0; i < 100; i++) {
+            assertTrue(buffer.add((i * 37) % 100));
+        }
+        assertFalse(buffer.add(0));
+        assertTrue(buffer.isFull());
+        for (int i = 0; i < 100; i++) {
+            assertEquals(i, buffer.poll().intValue());
+        }
+        assertNull(buffer.poll());
+
+        final PriorityBuffer<String> fifo = new PriorityBuffer<>(4, Comparator.comparing(String::length));
+        fifo.add("bb");
+        fifo.add("a1");
+        fifo.add("c");
+        fifo.add("a2");
+        assertEquals(Arrays.asList("c", "bb", "a1", "a2"),
+            Arrays.asList(fifo.poll(), fifo.poll(), fifo.poll(), fifo.poll()));
+
+        final PriorityBuffer<Integer> aging = new PriorityBuffer<>(10, Comparator.naturalOrder(), Duration.ofMillis(20));
+        assertTrue(aging.add(9));
+        Thread.sleep(30);
+        assertTrue(aging.add(1));
+        assertTrue(aging.add(2));
+        assertEquals(9, aging.poll().intValue());
+        assertEquals(1, aging.poll().intValue());
+        assertEquals(2, aging.poll().intValue());
+
+        // Entries taken by priority while old value waits are compacted away, old value still ages first
+        final PriorityBuffer<Integer> churn = new PriorityBuffer<>(4, Comparator.naturalOrder(), Duration.ofMillis(200));
+        assertTrue(churn.add(100));
+        for (int i = 0; i < 1000; i++) {
+            assertTrue(churn.add(i % 50));
+            assertEquals(i % 50, churn.poll().intValue());
+        }
+        Thread.sleep(220);
+        assertTrue(churn.add(1));
+        assertEquals(100, churn.poll().intValue());
+        assertEquals(1, churn.poll().intValue());
+        assertNull(churn.poll());
+
+        // Concurrent producers and consumers, every value is taken once
+        final PriorityBuffer<Integer> shared = new PriorityBuffer<>(16, Comparator.naturalOrder(), Duration.ofMillis(1));
+        final AtomicInteger next = new AtomicInteger();
+        final AtomicLong sum = new AtomicLong();
+        final AtomicInteger taken = new AtomicInteger();
+        final List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            threads.add(new Thread(() -> {
+                    int value;
+                    while ((value = next.getAndIncrement()) < 20_000) {
+                        while (!shared.add(value)) {
+                            Thread.yield();
+                        }
+                    }
+                }));
+            threads.add(new Thread(() -> {
+                    while (taken.get() < 20_000) {
+                        final Integer value = shared.poll();
+                        if (value != null) {
+                            sum.addAndGet(value);
+                            taken.incrementAndGet();
+                        }
+                    }
+                }));
+        }
+        threads.forEach(Thread::start);
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(20_000L * 19_999 / 2, sum.get());
+        assertTrue(shared.isEmpty());
+        assertEquals(16, shared.remainingCapacity());
+
+        final IChannel<Integer, Integer> channel = Channel.<Integer>channel()
+            .withPriorityBuffer(8, Comparator.reverseOrder(), null)
+            .get();
+        for (int i = 0; i < 8; i++) {
+            assertTrue(channel.offer(LangUtils.supply(i)));
+        }
+        assertEquals(Arrays.asList(7, 6, 5), channel.takeBatch(3).get());
+        assertEquals(4, channel.take().get().intValue());
+    }
+}
@@ -0,0 +1,69 @@
+package com.github.xdcrafts.swarm.async.impl;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for {@link RingBuffer}.
+ */
+public class RingBufferTest {
+
+    @Test
+    public void ringBufferTest() throws InterruptedException {
+        final RingBuffer<Integer> buffer = new RingBuffer<>(3);
+        assertTrue(buffer.isEmpty());
+        assertTrue(buffer.add(1));
+        assertTrue(buffer.add(2));
+        assertTrue(buffer.add(3));
+        assertFalse(buffer.add(4));
+        assertTrue(buffer.isFull());
+        assertEquals(Integer.valueOf(1), buffer.poll());
+        assertTrue(buffer.add(4));
+        assertEquals(Optional.of(2), buffer.remove());
+        assertEquals(Integer.valueOf(3), buffer.poll());
+        assertEquals(Integer.valueOf(4), buffer.poll());
+        assertNull(buffer.poll());
+
+        final RingBuffer<Integer> shared = new RingBuffer<>(64);
+        final int perProducer = 10000;
+        final AtomicLong sum = new AtomicLong();
+        final AtomicInteger taken = new AtomicInteger();
+        final List<Thread> threads = new ArrayList<>();
+        for (int p = 0; p < 4; p++) {
+            threads.add(new Thread(() -> {
+                    for (int i = 1; i <= perProducer; i++) {
+                        while (!shared.add(i)) {
+                            Thread.yield();
+                        }
+                    }
+                }));
+            threads.add(new Thread(() -> {
+                    while (taken.get() < 4 * perProducer) {
+                        final Integer value = shared.poll();
+                        if (value != null) {
+                            sum.addAndGet(value);
+                            taken.incrementAndGet();
+                        } else {
+                            Thread.yield();
+                        }
+                    }
+                }));
+        }
+        threads.forEach(Thread::start);
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(4L * perProducer * (perProducer + 1) / 2, sum.get());
+        assertTrue(shared.isEmpty());
+    }
+}
@@ -0,0 +1,174 @@
+package com.github.xdcrafts.swarm.async.impl;
+
+import com.github.xdcrafts.swarm.async.Async;
+import com.github.xdcrafts.swarm.async.AsyncException;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for {@link SequencedChannel}.
+ */
+public class SequencedChannelTest {
+
+    @Test
+    public void sequencedChannelTest() throws Exception {
+        final int count = 20_000;
+        for (SequencedChannel.WaitStrategy strategy : SequencedChannel.WaitStrategy.values()) {
+            for (SequencedChannel.Sequencing sequencing : SequencedChannel.Sequencing.values()) {
+                final SequencedChannel<Integer> channel = SequencedChannel.<Integer>sequenced()
+                    .withCapacity(64)
+                    .withSequencing(sequencing)
+                    .withWaitStrategy(strategy)
+                    .get();
+                final int producers = sequencing == SequencedChannel.Sequencing.SPSC ? 1 : 2;
+                final List<Thread> threads = new ArrayList<>();
+                for (int p = 0; p < producers; p++) {
+                    final int producer = p;
+                    final Thread thread = new Thread(() -> {
+                            try {
+                                for (int i = 0; i < count; i++) {
+                                    final int value = i * producers + producer;
+                                    channel.putBlocking(() -> value, Duration.ofSeconds(5));
+                                }
+                            } catch (InterruptedException | TimeoutException e) {
+                                throw new AsyncException(e);
+                            }
+                        });
+                    thread.start();
+                    threads.add(thread);
+                }
+                final int[] last = new int[producers];
+                Arrays.fill(last, -1);
+                for (int i = 0; i < count * producers; i++) {
+                    final int value = channel.takeBlocking(Duration.ofSeconds(5));
+                    assertTrue(value > last[value % producers]);
+                    last[value % producers] = value;
+                }
+                for (Thread thread : threads) {
+                    thread.join();
+                }
+                assertNull(channel.poll());
+                assertEquals(0, channel.size());
+            }
+        }
+
+        final SequencedChannel<Integer> looped = SequencedChannel.<Integer>sequenced()
+            .withCapacity(16)
+            .withSequencing(SequencedChannel.Sequencing.SPSC)
+            .get();
+        final AtomicLong sum = new AtomicLong();
+        final AtomicInteger taken = new AtomicInteger();
+        final Async.Completion completion = Async.takeLoop(looped, (Integer value, Async.Completion cmp) -> {
+                sum.addAndGet(value);
+                if (taken.incrementAndGet() == count) {
+                    cmp.done();
+                }
+            });
+        final Thread producer = new Thread(() -> {
+                for (int i = 1; i <= count; i++) {
+                    final int value = i;
+                    looped.put(() -> value).join();
+                }
+            });
+        producer.start();
+        completion.await();
+        producer.join();
+        assertEquals((long) count * (count + 1) / 2, sum.get());
+
+        final SequencedChannel<Integer> timed = SequencedChannel.<Integer>sequenced()
+            .withCapacity(1)
+            .withTakeTimeout(Duration.ofMillis(10))
+            .withPutTimeout(Duration.ofMillis(10))
+            .get();
+        try {
+            timed.take().get();
+            assertTrue(false);
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof TimeoutException);
+        }
+        assertTrue(timed.offer(() -> 1));
+        assertFalse(timed.offer(() -> 2));
+        try {
+            timed.put(() -> 2).get();
+            assertTrue(false);
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof TimeoutException);
+        }
+        assertEquals(1, timed.take().get().intValue());
+        final CompletableFuture<Integer> parked = timed.take();
+        timed.close();
+        try {
+            parked.get();
+            assertTrue(false);
+        } catch (ExecutionException e) {
+            assertEquals("Channel is closed.", e.getCause().getMessage());
+        }
+
+        // Put to full channel parks instead of blocking caller, parked puts are published in order
+        final SequencedChannel<Integer> parking = SequencedChannel.<Integer>sequenced()
+            .withCapacity(1)
+            .withSequencing(SequencedChannel.Sequencing.SPSC)
+            .get();
+        assertTrue(parking.put(() -> 1).isDone());
+        final CompletableFuture<Optional<Supplier<Integer>>> second = parking.put(() -> 2);
+        final CompletableFuture<Optional<Supplier<Integer>>> third = parking.put(() -> 3);
+        assertFalse(second.isDone());
+        assertFalse(third.isDone());
+        assertFalse(parking.offer(() -> 4));
+        assertEquals(1, parking.poll().intValue());
+        assertTrue(second.get().isPresent());
+        assertEquals(2, parking.take().get().intValue());
+        assertEquals(3, parking.takeBlocking(Duration.ofSeconds(1)).intValue());
+        assertTrue(third.get().isPresent());
+        assertTrue(parking.offer(() -> 4));
+        parking.close();
+        // Values that are left in channel can still be taken
+        assertEquals(4, parking.poll().intValue());
+        try {
+            parking.take().get();
+            assertTrue(false);
+        } catch (ExecutionException e) {
+            assertEquals("Channel is closed.", e.getCause().getMessage());
+        }
+
+        // Producer completes parked takes while consumer polls, every value is taken once and in order
+        final SequencedChannel<Integer> contended = SequencedChannel.<Integer>sequenced()
+            .withCapacity(8)
+            .withSequencing(SequencedChannel.Sequencing.SPSC)
+            .withTakeTimeout(Duration.ofSeconds(5))
+            .get();
+        final Thread feeder = new Thread(() -> {
+                for (int i = 0; i < count; i++) {
+                    final int value = i;
+                    contended.put(() -> value).join();
+                }
+            });
+        feeder.start();
+        int expected = 0;
+        while (expected < count) {
+            final Integer value = expected % 2 == 0 ? contended.take().get() : contended.poll();
+            if (value != null) {
+                assertEquals(expected, value.intValue());
+                expected++;
+            }
+        }
+        feeder.join();
+        assertNull(contended.poll());
+    }
+}
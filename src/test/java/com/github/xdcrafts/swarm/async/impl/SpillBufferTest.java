@@ -0,0 +1,75 @@
+package com.github.xdcrafts.swarm.async.impl;
+
+import com.github.xdcrafts.swarm.async.IChannel;
+import com.github.xdcrafts.swarm.async.ICodec;
+import com.github.xdcrafts.swarm.util.LangUtils;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ExecutionException;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for {@link SpillBuffer}.
+ */
+public class SpillBufferTest {
+
+    @Test
+    public void spillBufferTest() throws IOException, InterruptedException, ExecutionException {
+        final Path directory = Files.createTempDirectory("swarm-spill-test");
+        final SpillBuffer<String> buffer = new SpillBuffer<>(4, directory, ICodec.utf8(), 64, 1 << 20);
+        final StringBuilder large = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            large.append(i);
+        }
+        for (int round = 0; round < 3; round++) {
+            for (int i = 0; i < 1000; i++) {
+                assertTrue(buffer.add(i == 500 ? large.toString() : Integer.toString(i)));
+            }
+            assertEquals(1000, buffer.size());
+            assertEquals(996, buffer.spilledCount());
+            for (int i = 0; i < 1000; i++) {
+                assertEquals(i == 500 ? large.toString() : Integer.toString(i), buffer.poll());
+            }
+            assertTrue(buffer.isEmpty());
+            assertEquals(0, buffer.diskBytes());
+            assertNull(buffer.poll());
+        }
+        final SpillBuffer<String> limited = new SpillBuffer<>(1, directory, ICodec.utf8(), 64, 8);
+        assertTrue(limited.add("memory"));
+        assertTrue(limited.add("disk"));
+        assertFalse(limited.add("full"));
+        assertTrue(limited.isFull());
+
+        final IChannel<Integer, Integer> channel = Channel.<Integer>channel()
+            .withSpillBuffer(2, directory, new ICodec<Integer>() {
+                    @Override
+                    public byte[] encode(Integer value) {
+                        return ByteBuffer.allocate(4).putInt(value).array();
+                    }
+                    @Override
+                    public Integer decode(ByteBuffer bytes) {
+                        return bytes.getInt();
+                    }
+                })
+            .get();
+        for (int i = 0; i < 100; i++) {
+            assertTrue(channel.put(LangUtils.supply(i)).isDone());
+        }
+        for (int i = 0; i < 100; i++) {
+            assertEquals(i, channel.take().get().intValue());
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            assertEquals(0, files.count());
+        }
+        Files.delete(directory);
+    }
+}
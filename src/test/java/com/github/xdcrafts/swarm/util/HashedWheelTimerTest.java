@@ -0,0 +1,131 @@
+package com.github.xdcrafts.swarm.util;
+
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for hashed wheel timer and timeouts built on it.
+ */
+public class HashedWheelTimerTest {
+
+    @Test
+    public void scheduleTest() throws InterruptedException {
+        // Delay spans several revolutions of the wheel
+        final HashedWheelTimer timer = new HashedWheelTimer(Duration.ofMillis(1), 4);
+        try {
+            final CountDownLatch latch = new CountDownLatch(1);
+            final long start = System.nanoTime();
+            final HashedWheelTimer.Timeout timeout = timer.schedule(latch::countDown, Duration.ofMillis(20));
+            assertTrue(latch.await(1, TimeUnit.SECONDS));
+            assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(20));
+            assertTrue(timeout.isExpired());
+            assertFalse(timeout.cancel());
+
+            final CountDownLatch failing = new CountDownLatch(1);
+            timer.schedule(() -> {
+                    throw new IllegalStateException();
+                }, Duration.ZERO);
+            timer.schedule(failing::countDown, Duration.ofMillis(1));
+            assertTrue(failing.await(1, TimeUnit.SECONDS));
+        } finally {
+            timer.stop();
+        }
+    }
+
+    @Test
+    public void cancelTest() throws InterruptedException {
+        final HashedWheelTimer timer = new HashedWheelTimer(Duration.ofMillis(1), 8);
+        try {
+            final AtomicInteger runs = new AtomicInteger();
+            final HashedWheelTimer.Timeout timeout = timer.schedule(runs::incrementAndGet, Duration.ofMillis(10));
+            assertTrue(timeout.cancel());
+            assertTrue(timeout.cancel());
+            assertTrue(timeout.isCancelled());
+            final CountDownLatch latch = new CountDownLatch(1);
+            timer.schedule(latch::countDown, Duration.ofMillis(30));
+            assertTrue(latch.await(1, TimeUnit.SECONDS));
+            assertEquals(0, runs.get());
+            assertFalse(timeout.isExpired());
+        } finally {
+            timer.stop();
+        }
+    }
+
+    @Test
+    public void stopTest() throws InterruptedException {
+        final HashedWheelTimer timer = new HashedWheelTimer(Duration.ofMillis(1), 8);
+        final AtomicInteger runs = new AtomicInteger();
+        timer.schedule(runs::incrementAndGet, Duration.ofMillis(10));
+        timer.stop();
+        try {
+            timer.schedule(runs::incrementAndGet, Duration.ZERO);
+            assertTrue(false);
+        } catch (IllegalStateException e) {
+            assertEquals("Timer is stopped", e.getMessage());
+        }
+        Thread.sleep(30);
+        assertEquals(0, runs.get());
+
+        FutureUtils.TIMEOUT_TIMER.stop();
+        final CountDownLatch latch = new CountDownLatch(1);
+        FutureUtils.TIMEOUT_TIMER.schedule(latch::countDown, Duration.ofMillis(1));
+        assertTrue(latch.await(1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void withinTest() throws InterruptedException, ExecutionException {
+        final HashedWheelTimer timer = new HashedWheelTimer(Duration.ofMillis(1), 8);
+        try {
+            final CompletableFuture<Integer> late = FutureUtils.within(
+                new CompletableFuture<>(), Duration.ofMillis(10), timer
+            );
+            try {
+                late.get();
+                assertTrue(false);
+            } catch (ExecutionException e) {
+                assertTrue(e.getCause() instanceof TimeoutException);
+                assertEquals("Timeout after PT0.01S", e.getCause().getMessage());
+            }
+
+            final CompletableFuture<Integer> source = new CompletableFuture<>();
+            final CompletableFuture<Integer> inTime = FutureUtils.within(source, Duration.ofMillis(10), timer);
+            source.complete(1);
+            assertEquals(1, inTime.get().intValue());
+            Thread.sleep(30);
+            assertEquals(1, inTime.get().intValue());
+
+            final CompletableFuture<Integer> cancelled = FutureUtils.within(
+                new CompletableFuture<>(), Duration.ofMillis(10), timer
+            );
+            assertTrue(cancelled.cancel(false));
+            Thread.sleep(30);
+            assertTrue(cancelled.isCancelled());
+
+            final CompletableFuture<Integer> fallback = FutureUtils.within(
+                new CompletableFuture<>(), Duration.ofMillis(10), () -> 2
+            );
+            assertEquals(2, fallback.get().intValue());
+
+            final CompletableFuture<Integer> timeout = FutureUtils.timeout(Duration.ofMillis(10), timer);
+            try {
+                timeout.get();
+                assertTrue(false);
+            } catch (ExecutionException e) {
+                assertTrue(e.getCause() instanceof TimeoutException);
+            }
+        } finally {
+            timer.stop();
+        }
+    }
+}